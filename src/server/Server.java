@@ -5,11 +5,27 @@
  */
 package server;
 
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.net.*;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.*;
+import server.cache.StaticAssetCache;
+import server.concurrent.ExecutorMode;
+import server.concurrent.RequestExecutors;
+import server.concurrent.RequestGate;
+import server.database.Database;
+import server.database.DatabaseError;
+import server.database.SchemaMigrator;
+import server.database.StorageProfile;
+import server.generator.Datasets;
+import server.generator.TreePool;
 import server.handlers.*;
+import server.services.FillJobs;
+import server.services.Service;
 
  /**
  The Server class is the "main" class for the server (i.e., it contains the
@@ -19,6 +35,7 @@ public class Server {
 
     // Static members
     private static final int MAX_WAITING_CONNECTIONS = 12;
+    private static final int SHEDDING_THREADS = 2;
     private static Logger logger;
 
     static {
@@ -52,6 +69,22 @@ public class Server {
 
     // Non static members
     private HttpServer server;
+    private ExecutorService executor;
+    private StaticAssetCache webAssets;
+    private int retryAfterSeconds;
+    private int queueTimeoutMillis;
+
+    // Server-wide admission
+    private AdmissionFilter admission;
+
+    // Interactive reads, with slots of their own
+    private AdmissionFilter readLane;
+
+    // Per-route lanes for bulk writes
+    private AdmissionFilter loadLane;
+    private AdmissionFilter clearLane;
+    private AdmissionFilter fillLane;
+    private int laneQueueCapacity;
 
     /**
      * "main" method for the server program
@@ -87,11 +120,77 @@ public class Server {
      *  client connections.
      */
     private void run(int portNumber) {
+        initializeDatabase();
+        initializeGenerators();
+        initializeWebAssets();
         initializeServer(portNumber);
         createContexts();
         startServer();
     }
 
+    /**
+     * Creates the database connection pools shared by every request and brings the schema up
+     *  to date
+     */
+    private void initializeDatabase() {
+        logger.info("Initializing database connection pools");
+
+        try {
+            StorageProfile profile = StorageProfile.named(
+                    ServerConfig.getString(ServerConfig.DB_PROFILE, "wal"));
+
+            profile.setReaders(ServerConfig.getInt(ServerConfig.DB_READERS, profile.getReaders()));
+            profile.setSynchronous(ServerConfig.getString(ServerConfig.DB_SYNCHRONOUS,
+                    profile.getSynchronous()));
+            profile.setMmapSize(ServerConfig.getLong(ServerConfig.DB_MMAP_SIZE, profile.getMmapSize()));
+            profile.setCacheSize(ServerConfig.getInt(ServerConfig.DB_CACHE_SIZE, profile.getCacheSize()));
+            profile.setBusyTimeoutMillis(ServerConfig.getInt(ServerConfig.DB_BUSY_TIMEOUT_MILLIS,
+                    profile.getBusyTimeoutMillis()));
+
+            Database.initialize(profile,
+                    ServerConfig.getInt(ServerConfig.DB_BORROW_TIMEOUT_MILLIS, 5000),
+                    ServerConfig.getInt(ServerConfig.DB_WRITE_TIMEOUT_MILLIS, 30000),
+                    ServerConfig.getInt(ServerConfig.DB_LEAK_THRESHOLD_MILLIS, 30000),
+                    ServerConfig.getBoolean(ServerConfig.DB_TRACE_LEAKS, false));
+
+            new SchemaMigrator().migrate();
+        }
+        catch (DatabaseError | IllegalArgumentException e) {
+            e.printStackTrace();
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Loads the name and location datasets used to generate family trees, then starts
+     *  pre-generating the trees given to new users
+     */
+    private void initializeGenerators() {
+        logger.info("Loading generator datasets");
+
+        try {
+            Datasets.initialize(ServerConfig.getLong(ServerConfig.DATASETS_RELOAD_MILLIS, 0));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            System.exit(0);
+        }
+
+        TreePool.getInstance().start(ServerConfig.getInt(ServerConfig.TREE_POOL_SIZE, 4),
+                Service.DEFAULT_GENERATIONS);
+    }
+
+    /**
+     * Loads the test website into memory
+     */
+    private void initializeWebAssets() {
+        logger.info("Loading web assets");
+
+        webAssets = new StaticAssetCache(Paths.get("web"),
+                ServerConfig.getLong(ServerConfig.WEB_MAX_CACHED_BYTES, 1024 * 1024),
+                ServerConfig.getBoolean(ServerConfig.WEB_WATCH, true));
+    }
+
     /**
      * Initializes the server
      */
@@ -107,8 +206,26 @@ public class Server {
             System.exit(0);
         }
 
-        // Indicate that we are using the default "executor" (necessary).
-        server.setExecutor(null);
+        // Select how exchanges are dispatched (null keeps the default single dispatcher thread)
+        ExecutorMode mode = ExecutorMode.parse(
+                ServerConfig.getString(ServerConfig.EXECUTOR, null), ExecutorMode.VIRTUAL);
+        int workers = ServerConfig.getInt(ServerConfig.WORKER_THREADS,
+                Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        int queueCapacity = ServerConfig.getInt(ServerConfig.QUEUE_CAPACITY, 64);
+        retryAfterSeconds = ServerConfig.getInt(ServerConfig.RETRY_AFTER_SECONDS, 1);
+        queueTimeoutMillis = ServerConfig.getInt(ServerConfig.QUEUE_TIMEOUT_MILLIS, 10000);
+
+        // Admitted requests run [workers] at a time, with up to [queueCapacity] waiting behind them
+        RequestGate gate = new RequestGate("requests", workers, queueCapacity, queueTimeoutMillis);
+        admission = new AdmissionFilter(gate, retryAfterSeconds);
+
+        initializeLanes(workers, queueCapacity);
+
+        // Pooled threads wait in the gates, so the pool needs room for every queue, the reads
+        //  running beside the server-wide slots, and threads that can answer 503s while they are full
+        executor = RequestExecutors.create(mode, workers + queueCapacity + laneQueueCapacity +
+                readLane.getGate().getMaxConcurrent() + SHEDDING_THREADS);
+        server.setExecutor(executor);
 
         logger.info("Finished Initialization");
     }
@@ -120,32 +237,88 @@ public class Server {
         logger.info("Creating contexts");
 
         // Default
-        server.createContext("/", new WebHandler());
+        createContext("/", new WebHandler(webAssets), admission);
 
         // Registers new users
-        server.createContext("/user/register", new RegisterHandler());
+        createContext("/user/register", new RegisterHandler(), admission);
 
         // Logs in existing users
-        server.createContext("/user/login", new LoginHandler());
+        createContext("/user/login", new LoginHandler(), admission);
 
         // Clears the database
-        server.createContext("/clear", new ClearHandler());
+        createContext("/clear", new ClearHandler(), clearLane, admission);
 
         // Clears [username]'s data, then fills [username] with {generations} of random data
-        server.createContext("/fill", new FillHandler());
+        createContext("/fill", new FillHandler(), fillLane, admission);
+
+        // Returns the progress of a background fill (not in the fill lane, so polls never wait
+        //  behind fills)
+        createContext("/fill/jobs", new FillJobHandler(), readLane);
 
         // Clears the database and loads new data given by the user
-        server.createContext("/load", new LoadHandler());
+        createContext("/load", new LoadHandler(), loadLane, admission);
 
         // Returns all people for the current user
-        server.createContext("/person", new PersonHandler());
+        createContext("/person", new PersonHandler(), readLane);
 
         // Returns events for the current user
-        server.createContext("/event", new EventHandler());
+        createContext("/event", new EventHandler(), readLane);
+
+        // Returns a snapshot of the server's metrics (never shed, so it stays readable under load)
+        server.createContext("/metrics", new MetricsHandler());
 
         logger.info("Finished creating contexts");
     }
 
+    /**
+     * Creates the execution lanes for bulk writes. Each lane is a per-route limit on concurrent
+     *  requests with its own queue and thread priority, configurable through famserver.lane.[name].*
+     *  Requests wait in their lane before taking a server-wide slot. Interactive reads have a lane
+     *  of their own instead of server-wide slots, so bulk writes can never take the slots reads
+     *  need.
+     *
+     * @param workers the number of server-wide slots (the read lane's default concurrency)
+     * @param queueCapacity the server-wide queue (the read lane's default queue)
+     */
+    private void initializeLanes(int workers, int queueCapacity) {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        readLane = createLane("read", workers, queueCapacity, Thread.NORM_PRIORITY + 2);
+        loadLane = createLane("load", 1, 2, Thread.MIN_PRIORITY);
+        clearLane = createLane("clear", 1, 2, Thread.MIN_PRIORITY);
+        fillLane = createLane("fill", Math.max(1, cores / 2), 8, Thread.MIN_PRIORITY);
+
+        // Background fills take a fill lane slot while they run, so the lane bounds every fill
+        FillJobs.getInstance().setGate(fillLane.getGate());
+    }
+
+    private AdmissionFilter createLane(String name, int concurrency, int queue, int priority) {
+        String prefix = ServerConfig.LANE_PREFIX + name;
+
+        RequestGate gate = new RequestGate("lane." + name,
+                ServerConfig.getInt(prefix + ".concurrency", concurrency),
+                ServerConfig.getInt(prefix + ".queue", queue),
+                ServerConfig.getInt(prefix + ".timeoutMs", queueTimeoutMillis));
+
+        laneQueueCapacity += gate.getMaxQueued();
+        logger.info("Lane " + name + ": " + gate.getMaxConcurrent() + " concurrent, " +
+                gate.getMaxQueued() + " queued");
+
+        return new AdmissionFilter(gate, retryAfterSeconds,
+                ServerConfig.getInt(prefix + ".priority", priority));
+    }
+
+    /**
+     * Links a url to a Handler behind the given filters, which run in order
+     */
+    private void createContext(String path, HttpHandler handler, AdmissionFilter... filters) {
+        HttpContext context = server.createContext(path, handler);
+
+        for (AdmissionFilter filter : filters) {
+            context.getFilters().add(filter);
+        }
+    }
+
     private void startServer() {
         logger.info("Starting server");
 
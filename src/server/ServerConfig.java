@@ -0,0 +1,305 @@
+package server;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads server settings from system properties (ie: -Dfamserver.executor=pooled), falling back
+ *  to defaults when a property is missing or invalid
+ */
+public final class ServerConfig {
+
+    /* STATIC */
+    private static Logger logger;
+
+    static {
+        logger = Logger.getLogger("famServer");
+    }
+
+    /**
+     * How HTTP exchanges are dispatched: "virtual", "pooled" or "dispatcher"
+     */
+    public static final String EXECUTOR = "famserver.executor";
+
+    /**
+     * The number of requests that may run at once
+     */
+    public static final String WORKER_THREADS = "famserver.workers";
+
+    /**
+     * The number of requests that may wait for a worker before new requests are answered with 503
+     */
+    public static final String QUEUE_CAPACITY = "famserver.queue.capacity";
+
+    /**
+     * How long (ms) a queued request may wait for a worker before it is answered with 503
+     */
+    public static final String QUEUE_TIMEOUT_MILLIS = "famserver.queue.timeoutMs";
+
+    /**
+     * The Retry-After value (seconds) sent with 503 responses
+     */
+    public static final String RETRY_AFTER_SECONDS = "famserver.retryAfter";
+
+    /**
+     * Prefix for per-route lane settings: [prefix][lane].concurrency, .queue, .timeoutMs and
+     *  .priority (ie: -Dfamserver.lane.fill.concurrency=2). Lanes: load, clear, fill and read
+     */
+    public static final String LANE_PREFIX = "famserver.lane.";
+
+    /**
+     * The SQLite storage profile: "wal" (a writer alongside read-only readers) or "legacy"
+     *  (rollback journal). The settings below override the profile's defaults.
+     */
+    public static final String DB_PROFILE = "famserver.db.profile";
+
+    /**
+     * The number of pooled read-only database connections
+     */
+    public static final String DB_READERS = "famserver.db.readers";
+
+    /**
+     * The synchronous PRAGMA (ie: NORMAL or FULL)
+     */
+    public static final String DB_SYNCHRONOUS = "famserver.db.synchronous";
+
+    /**
+     * The mmap_size PRAGMA, in bytes
+     */
+    public static final String DB_MMAP_SIZE = "famserver.db.mmapSize";
+
+    /**
+     * The cache_size PRAGMA (negative values are KiB, positive values are pages)
+     */
+    public static final String DB_CACHE_SIZE = "famserver.db.cacheSize";
+
+    /**
+     * The busy_timeout PRAGMA, in ms
+     */
+    public static final String DB_BUSY_TIMEOUT_MILLIS = "famserver.db.busyTimeoutMs";
+
+    /**
+     * How long (ms) a read waits for a pooled read-only connection
+     */
+    public static final String DB_BORROW_TIMEOUT_MILLIS = "famserver.db.borrowTimeoutMs";
+
+    /**
+     * How long (ms) a write waits for the single writer connection
+     */
+    public static final String DB_WRITE_TIMEOUT_MILLIS = "famserver.db.writeTimeoutMs";
+
+    /**
+     * How long (ms) a database connection may be held before it is reported as leaked
+     */
+    public static final String DB_LEAK_THRESHOLD_MILLIS = "famserver.db.leakThresholdMs";
+
+    /**
+     * Whether to record where each database connection is borrowed, so leak reports include it
+     *  (costs a stack trace per borrow)
+     */
+    public static final String DB_TRACE_LEAKS = "famserver.db.traceLeaks";
+
+    /**
+     * The number of rows sent per JDBC batch when inserting users, persons and events
+     */
+    public static final String DB_BATCH_SIZE = "famserver.db.batchSize";
+
+    /**
+     * The maximum number of AuthTokens kept in the token cache
+     */
+    public static final String TOKEN_CACHE_SIZE = "famserver.tokenCache.size";
+
+    /**
+     * How long (seconds) a token stays in the token cache
+     */
+    public static final String TOKEN_CACHE_TTL_SECONDS = "famserver.tokenCache.ttlSeconds";
+
+    /**
+     * Maximum number of persons (and, separately, events) kept in the per-user data caches
+     */
+    public static final String DATA_CACHE_MAX_ROWS = "famserver.dataCache.maxRows";
+
+    /**
+     * How often (milliseconds) to check the generator datasets for changes (0 never reloads them)
+     */
+    public static final String DATASETS_RELOAD_MILLIS = "famserver.datasets.reloadMs";
+
+    /**
+     * Fills of at least this many generations generate the tree in parallel
+     */
+    public static final String FILL_PARALLEL_GENERATIONS = "famserver.fill.parallelGenerations";
+
+    /**
+     * Number of threads that generate family trees in parallel
+     */
+    public static final String FILL_PARALLELISM = "famserver.fill.parallelism";
+
+    /**
+     * Fills of at least this many generations are inserted while they are generated
+     */
+    public static final String FILL_STREAM_GENERATIONS = "famserver.fill.streamGenerations";
+
+    /**
+     * Number of generated batches that may wait to be inserted during a streamed fill
+     */
+    public static final String FILL_STREAM_QUEUE = "famserver.fill.streamQueue";
+
+    /**
+     * Seed for generated family trees, making every fill and registration reproducible (unset
+     *  generates different data every time)
+     */
+    public static final String FILL_SEED = "famserver.fill.seed";
+
+    /**
+     * How person, event and user IDs are created: "ulid" (time-ordered) or "uuid"
+     */
+    public static final String ID_STRATEGY = "famserver.ids";
+
+    /**
+     * Number of trees kept ready for new users, per gender (0 generates every tree on demand)
+     */
+    public static final String TREE_POOL_SIZE = "famserver.treePool.size";
+
+    /**
+     * Number of threads that run background (?async=true) fills
+     */
+    public static final String FILL_JOB_THREADS = "famserver.fill.jobThreads";
+
+    /**
+     * Maximum number of background fills waiting or running at once
+     */
+    public static final String FILL_JOB_QUEUE = "famserver.fill.jobQueue";
+
+    /**
+     * How long (seconds) a finished background fill can still be polled
+     */
+    public static final String FILL_JOB_RETENTION_SECONDS = "famserver.fill.jobRetentionSeconds";
+
+    /**
+     * /load bodies larger than this (or of unknown length) are loaded while they are read
+     */
+    public static final String LOAD_STREAM_THRESHOLD_BYTES = "famserver.load.streamThresholdBytes";
+
+    /**
+     * Number of parsed batches that may wait to be inserted during a streamed load
+     */
+    public static final String LOAD_STREAM_QUEUE = "famserver.load.streamQueue";
+
+    /**
+     * Responses up to this size are buffered and sent with a Content-Length; larger ones are
+     *  chunked
+     */
+    public static final String RESPONSE_BUFFER_BYTES = "famserver.response.bufferBytes";
+
+    /**
+     * Number of idle response buffers kept for reuse
+     */
+    public static final String RESPONSE_POOLED_BUFFERS = "famserver.response.pooledBuffers";
+
+    /**
+     * Whether responses are compressed for clients that accept gzip or deflate
+     */
+    public static final String COMPRESSION_ENABLED = "famserver.compression.enabled";
+
+    /**
+     * Responses smaller than this are never compressed
+     */
+    public static final String COMPRESSION_MIN_BYTES = "famserver.compression.minBytes";
+
+    /**
+     * Deflate compression level, from 1 (fastest) to 9 (smallest)
+     */
+    public static final String COMPRESSION_LEVEL = "famserver.compression.level";
+
+    /**
+     * Website files larger than this are read from disk when served instead of being cached
+     */
+    public static final String WEB_MAX_CACHED_BYTES = "famserver.web.maxCachedBytes";
+
+    /**
+     * Whether the cached website files are reloaded when they change
+     */
+    public static final String WEB_WATCH = "famserver.web.watch";
+
+    private ServerConfig() {}
+
+    /**
+     * Returns a string setting
+     *
+     * @param key the system property name
+     * @param defaultValue the value to use if the property is not set
+     * @return the setting's value
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+
+        return value.trim();
+    }
+
+    /**
+     * Returns an integer setting
+     *
+     * @param key the system property name
+     * @param defaultValue the value to use if the property is not set or is not a number
+     * @return the setting's value
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            logger.log(Level.WARNING, "Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns a long setting
+     *
+     * @param key the system property name
+     * @param defaultValue the value to use if the property is not set or is not a number
+     * @return the setting's value
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e) {
+            logger.log(Level.WARNING, "Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns a boolean setting
+     *
+     * @param key the system property name
+     * @param defaultValue the value to use if the property is not set
+     * @return the setting's value
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,170 @@
+package server.bench;
+
+import com.google.gson.Gson;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import server.database.model.Event;
+import server.database.model.Person;
+import server.database.model.User;
+import server.generator.FamilyTreeGenerator;
+import server.json.JsonCodec;
+import server.services.EventResponse;
+import server.services.EventsResponse;
+import server.services.LoadRequest;
+import server.services.LoginRequest;
+import server.services.PeopleResponse;
+import server.services.PersonResponse;
+
+/**
+ * Compares JsonCodec's hand-written adapters with reflective Gson, both as the server used it
+ *  before (a new Gson for every call) and as a single shared instance. Encodes the /person and
+ *  /event responses of a seeded tree, and decodes a /user/login body and a /load body of the same
+ *  tree. Each result is the median operations per second of the timed rounds, after one warm-up
+ *  round.
+ *
+ * Usage (with the gson jar on the classpath):
+ *  java server.bench.CodecBenchmark [generations] [rounds] [roundMillis]
+ *  Defaults: 10 generations (2047 persons), 5 rounds of 1000 ms.
+ */
+public class CodecBenchmark {
+
+    /* STATIC */
+    private static long sink;
+
+    public static void main(String[] args) {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long roundMillis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+        Logger.getLogger("famServer").setLevel(Level.WARNING);
+
+        FamilyTreeGenerator generator = new FamilyTreeGenerator(42);
+        User user = new User("uid", "root", "bench", "password", "bench@example.com");
+        generator.generateTree(new Person("root", "bench", "Bench", "Mark", "f"), generations);
+
+        List<Person> persons = generator.getPersonList();
+        List<Event> events = generator.getEventList();
+        List<User> users = new ArrayList<>();
+        users.add(user);
+
+        PeopleResponse people = new PeopleResponse(getPersonResponses(persons));
+        EventsResponse eventResponses = new EventsResponse(getEventResponses(events));
+        String login = JsonCodec.getInstance().toJson(new LoginRequest("bench", "password"));
+        String load = JsonCodec.getInstance().toJson(new LoadRequest(users, persons, events));
+
+        Gson shared = new Gson();
+        JsonCodec codec = JsonCodec.getInstance();
+
+        System.out.printf("%d persons, %d events; /load body %d KB; median of %d rounds (ops/sec)%n",
+                persons.size(), events.size(), load.length() / 1024, rounds);
+        System.out.printf("%-22s %14s %14s %14s%n", "case", "new Gson()", "shared Gson", "JsonCodec");
+
+        report("encode /person", rounds, roundMillis,
+                () -> encode(new Gson(), people), () -> encode(shared, people),
+                () -> encode(codec, people));
+        report("encode /event", rounds, roundMillis,
+                () -> encode(new Gson(), eventResponses), () -> encode(shared, eventResponses),
+                () -> encode(codec, eventResponses));
+        report("decode /user/login", rounds, roundMillis,
+                () -> new Gson().fromJson(login, LoginRequest.class),
+                () -> shared.fromJson(login, LoginRequest.class),
+                () -> codec.fromJson(login, LoginRequest.class));
+        report("decode /load", rounds, roundMillis,
+                () -> new Gson().fromJson(load, LoadRequest.class),
+                () -> shared.fromJson(load, LoadRequest.class),
+                () -> codec.fromJson(load, LoadRequest.class));
+
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static List<PersonResponse> getPersonResponses(List<Person> persons) {
+        List<PersonResponse> responses = new ArrayList<>();
+
+        for (Person person : persons) {
+            responses.add(new PersonResponse(person.getDescendant(), person.getPersonID(),
+                    person.getFirstName(), person.getLastName(), person.getGender(), person.getFather(),
+                    person.getMother(), person.getSpouse()));
+        }
+
+        return responses;
+    }
+
+    private static List<EventResponse> getEventResponses(List<Event> events) {
+        List<EventResponse> responses = new ArrayList<>();
+
+        for (Event event : events) {
+            responses.add(new EventResponse(event.getDescendant(), event.getEventID(),
+                    event.getPersonID(), event.getLatitude(), event.getLongitude(), event.getCountry(),
+                    event.getCity(), event.getEventType(), event.getYear()));
+        }
+
+        return responses;
+    }
+
+    private static String encode(Gson gson, Object object) {
+        StringWriter writer = new StringWriter();
+        gson.toJson(object, writer);
+        return writer.toString();
+    }
+
+    private static String encode(JsonCodec codec, Object object) {
+        StringWriter writer = new StringWriter();
+        codec.toJson(object, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Prints the operations per second of each implementation of one case
+     */
+    @SafeVarargs
+    private static void report(String name, int rounds, long roundMillis, Supplier<Object>... implementations) {
+        double[] results = new double[implementations.length];
+
+        for (int i = 0; i < implementations.length; i++) {
+            double[] rates = new double[rounds];
+
+            for (int round = -1; round < rounds; round++) {
+                double rate = measure(implementations[i], roundMillis);
+
+                if (round >= 0) {
+                    rates[round] = rate;
+                }
+            }
+
+            Arrays.sort(rates);
+            results[i] = rates[rounds / 2];
+        }
+
+        System.out.printf("%-22s %14.0f %14.0f %14.0f%n", name, results[0], results[1], results[2]);
+    }
+
+    /**
+     * Runs an operation repeatedly for about [millis] ms
+     *
+     * @return operations per second
+     */
+    private static double measure(Supplier<Object> operation, long millis) {
+        long start = System.nanoTime();
+        long end = start + millis * 1000000;
+        long count = 0;
+        long now;
+
+        do {
+            sink += operation.get().hashCode();
+            count++;
+            now = System.nanoTime();
+        }
+        while (now < end);
+
+        return count * 1e9 / (now - start);
+    }
+}
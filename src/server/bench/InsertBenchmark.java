@@ -0,0 +1,203 @@
+package server.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import server.database.ConnectionPool;
+import server.database.DatabaseError;
+import server.database.StatementCache;
+import server.database.StorageProfile;
+import server.database.access.EventDAO;
+import server.database.access.PersonDAO;
+import server.database.access.UserDAO;
+import server.database.model.Event;
+import server.database.model.Person;
+import server.database.model.User;
+import server.generator.FamilyTreeGenerator;
+
+/**
+ * Measures how many persons, events and users per second are inserted one row at a time with
+ *  insert() (how services stored generated and loaded data before they used JDBC batches) and
+ *  with insertAll() at several batch sizes. Every run inserts the same seeded tree into freshly
+ *  created tables in one transaction, in a scratch database in the temp directory (never
+ *  db/server.sqlite). Each result is the median of the timed rounds, after one warm-up round.
+ *
+ * Usage (with the sqlite-jdbc and gson jars on the classpath):
+ *  java server.bench.InsertBenchmark [generations] [rounds] [batchSize...]
+ *  Defaults: 10 generations (2047 persons), 5 rounds, batch sizes 100, 500 and 2000.
+ */
+public class InsertBenchmark {
+
+    /* STATIC */
+    private static final int USERS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int[] batchSizes = args.length > 2 ? parseInts(Arrays.copyOfRange(args, 2, args.length)) :
+                new int[] {100, 500, 2000};
+
+        // Per-row inserts log every row, which would be measured instead of the database
+        Logger.getLogger("famServer").setLevel(Level.WARNING);
+
+        File file = File.createTempFile("famserver-bench", ".sqlite");
+        file.deleteOnExit();
+
+        try {
+            new InsertBenchmark(file, generations).run(rounds, batchSizes);
+        }
+        finally {
+            new File(file.getPath() + "-wal").delete();
+            new File(file.getPath() + "-shm").delete();
+        }
+    }
+
+    private static int[] parseInts(String[] values) {
+        int[] ints = new int[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            ints[i] = Integer.parseInt(values[i]);
+        }
+
+        return ints;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    /* NON-STATIC */
+    private final ConnectionPool pool;
+    private final List<Person> persons;
+    private final List<Event> events;
+    private final List<User> users = new ArrayList<>();
+
+    private InsertBenchmark(File file, int generations) throws DatabaseError {
+        pool = new ConnectionPool("bench", "jdbc:sqlite:" + file.getPath(),
+                StorageProfile.named("wal"), false, 1, 30000, 60000, false);
+
+        FamilyTreeGenerator generator = new FamilyTreeGenerator(42);
+        generator.generateTree(new Person("root", "bench", "Bench", "Mark", "f"), generations);
+        persons = generator.getPersonList();
+        events = generator.getEventList();
+
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User("uid" + i, "pid" + i, "user" + i, "password", "user" + i + "@example.com"));
+        }
+    }
+
+    private void run(int rounds, int[] batchSizes) throws DatabaseError, SQLException {
+        System.out.printf("%d persons, %d events, %d users; median of %d rounds (rows/sec)%n",
+                persons.size(), events.size(), users.size(), rounds);
+        System.out.printf("%-16s %12s %12s %12s%n", "method", "persons", "events", "users");
+
+        report("insert()", rounds, 0);
+
+        for (int batchSize : batchSizes) {
+            report("insertAll(" + batchSize + ")", rounds, batchSize);
+        }
+
+        pool.shutdown();
+    }
+
+    /**
+     * Prints the rows per second of one method
+     *
+     * @param batchSize the insertAll() batch size, or 0 for one insert() per row
+     */
+    private void report(String method, int rounds, int batchSize) throws DatabaseError, SQLException {
+        double[][] rates = new double[3][rounds];
+
+        for (int round = -1; round < rounds; round++) {
+            double[] rate = measure(batchSize);
+
+            if (round >= 0) {
+                for (int table = 0; table < 3; table++) {
+                    rates[table][round] = rate[table];
+                }
+            }
+        }
+
+        System.out.printf("%-16s %12.0f %12.0f %12.0f%n", method, median(rates[0]), median(rates[1]),
+                median(rates[2]));
+    }
+
+    /**
+     * Recreates the tables and inserts every row in one transaction
+     *
+     * @return rows per second for {persons, events, users}
+     */
+    private double[] measure(int batchSize) throws DatabaseError, SQLException {
+        Connection connection = pool.borrow();
+
+        try {
+            StatementCache statements = pool.getStatementCache(connection);
+            PersonDAO personDAO = new PersonDAO(connection, statements);
+            EventDAO eventDAO = new EventDAO(connection, statements);
+            UserDAO userDAO = new UserDAO(connection, statements);
+
+            connection.setAutoCommit(false);
+            personDAO.createTable();
+            eventDAO.createTable();
+            userDAO.createTable();
+            connection.commit();
+
+            double[] rates = new double[3];
+            long start = System.nanoTime();
+
+            if (batchSize > 0) {
+                personDAO.insertAll(persons, batchSize);
+            }
+            else {
+                for (Person person : persons) {
+                    personDAO.insert(person);
+                }
+            }
+
+            rates[0] = rowsPerSecond(persons.size(), start);
+            start = System.nanoTime();
+
+            if (batchSize > 0) {
+                eventDAO.insertAll(events, batchSize);
+            }
+            else {
+                for (Event event : events) {
+                    eventDAO.insert(event);
+                }
+            }
+
+            rates[1] = rowsPerSecond(events.size(), start);
+            start = System.nanoTime();
+
+            if (batchSize > 0) {
+                userDAO.insertAll(users, batchSize);
+            }
+            else {
+                for (User user : users) {
+                    userDAO.insert(user);
+                }
+            }
+
+            rates[2] = rowsPerSecond(users.size(), start);
+            connection.commit();
+            return rates;
+        }
+        finally {
+            pool.release(connection);
+        }
+    }
+
+    private static double rowsPerSecond(int rows, long startNanos) {
+        return rows * 1e9 / (System.nanoTime() - startNanos);
+    }
+}
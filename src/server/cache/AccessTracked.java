@@ -0,0 +1,69 @@
+package server.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An entry of a concurrent cache that remembers roughly when it was last read, so the cache can
+ *  evict approximately the least recently used entries without locking on reads. Reads only
+ *  write the access time when it has moved on by more than a millisecond, so entries read by
+ *  many threads at once are not written on every hit.
+ */
+abstract class AccessTracked {
+
+    /* STATIC */
+    private static final long TOUCH_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Returns a snapshot of a cache's entries, least recently used first. Remove them with
+     *  ConcurrentMap.remove(key, entry), so entries replaced in the meantime are kept.
+     *
+     * @param entries the cache's entries
+     * @return the entries in the order they should be evicted
+     */
+    static <K, E extends AccessTracked> List<Candidate<K, E>> leastRecentlyUsed(ConcurrentMap<K, E> entries) {
+        List<Candidate<K, E>> candidates = new ArrayList<>(entries.size());
+
+        for (Map.Entry<K, E> entry : entries.entrySet()) {
+            candidates.add(new Candidate<>(entry.getKey(), entry.getValue()));
+        }
+
+        candidates.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+        return candidates;
+    }
+
+    /* NON-STATIC */
+    private volatile long lastAccess = System.nanoTime();
+
+    /**
+     * Records a read of the entry
+     *
+     * @param now the current System.nanoTime()
+     */
+    void touch(long now) {
+
+        if (now - lastAccess > TOUCH_NANOS) {
+            lastAccess = now;
+        }
+    }
+
+    /**
+     * An entry as it was when the eviction order was worked out
+     */
+    static class Candidate<K, E extends AccessTracked> {
+
+        final K key;
+        final E entry;
+        final long lastAccess;
+
+        Candidate(K key, E entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = ((AccessTracked)entry).lastAccess;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package server.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks a monotonic version of each user's family tree data. Services that change a user's
+ *  persons or events bump the user's version after committing, which invalidates anything cached
+ *  under an older version.
+ *
+ * Versions come from a single clock that starts at the server's start time (in microseconds), so
+ *  they keep increasing across restarts.
+ */
+public final class DataVersions {
+
+    /* STATIC */
+    private static final AtomicLong clock = new AtomicLong(System.currentTimeMillis() * 1000);
+    private static final ConcurrentMap<String, Long> versions = new ConcurrentHashMap<>();
+    private static final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private static volatile long floor = clock.get();
+
+    private DataVersions() {}
+
+    /**
+     * Returns the current version of a user's data
+     *
+     * @param username the user's username
+     * @return the user's data version
+     */
+    public static long get(String username) {
+        Long version = versions.get(username);
+        long current = floor;
+        return version == null ? current : Math.max(current, version);
+    }
+
+    /**
+     * Returns a tag for the current version of a user's data. Users who have not changed since the
+     *  last /clear or /load share a version, so the tag also carries a hash of the username, and
+     *  two users never get the same tag.
+     *
+     * @param username the user's username
+     * @return the tag, made of letters, digits and '-'
+     */
+    public static String tag(String username) {
+        byte[] hash;
+
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(username.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        return Long.toUnsignedString(ByteBuffer.wrap(hash).getLong(), 36) + "-" +
+                Long.toString(get(username), 36);
+    }
+
+    /**
+     * Returns the clock's current value. Any version bumped after this call will be greater than
+     *  the value returned.
+     *
+     * @return the clock's current value
+     */
+    public static long now() {
+        return clock.get();
+    }
+
+    /**
+     * Marks a user's data as changed. Call after committing the change.
+     *
+     * @param username the user whose persons or events changed
+     */
+    public static void bump(String username) {
+        assert username != null : "null username";
+        versions.put(username, clock.incrementAndGet());
+
+        for (InvalidationListener listener : listeners) {
+            listener.invalidate(username);
+        }
+    }
+
+    /**
+     * Marks every user's data as changed (ie: after /clear or /load). Call after committing.
+     */
+    public static void bumpAll() {
+        floor = clock.incrementAndGet();
+        versions.clear();
+
+        for (InvalidationListener listener : listeners) {
+            listener.invalidateAll();
+        }
+    }
+
+    /**
+     * Registers a listener that is told whenever data changes, so it can free stale entries
+     *
+     * @param listener the listener
+     */
+    public static void addListener(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Told whenever a user's data (or everyone's data) changes
+     */
+    public interface InvalidationListener {
+
+        void invalidate(String username);
+
+        void invalidateAll();
+    }
+}
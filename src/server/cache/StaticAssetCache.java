@@ -0,0 +1,400 @@
+package server.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import server.metrics.Metrics;
+
+/**
+ * Keeps the files of a static website in memory, with their content types, entity tags and gzip
+ *  variants worked out ahead of time, so serving a page never touches the disk. Files larger than
+ *  the cache's limit only have their metadata cached, and are read from disk when served.
+ *
+ * The cache is filled when it is created. A WatchService thread reloads files as they change.
+ */
+public class StaticAssetCache {
+
+    /* STATIC */
+    private static final int MIN_GZIP_BYTES = 256;
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+    private static Logger logger;
+
+    static {
+        logger = Logger.getLogger("famServer");
+
+        CONTENT_TYPES.put("html", "text/html; charset=utf-8");
+        CONTENT_TYPES.put("htm", "text/html; charset=utf-8");
+        CONTENT_TYPES.put("css", "text/css; charset=utf-8");
+        CONTENT_TYPES.put("js", "application/javascript; charset=utf-8");
+        CONTENT_TYPES.put("json", "application/json; charset=utf-8");
+        CONTENT_TYPES.put("txt", "text/plain; charset=utf-8");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+        CONTENT_TYPES.put("ico", "image/x-icon");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("jpg", "image/jpeg");
+        CONTENT_TYPES.put("jpeg", "image/jpeg");
+        CONTENT_TYPES.put("gif", "image/gif");
+    }
+
+    /* NON-STATIC */
+    private final Path root;
+    private final long maxCachedBytes;
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private WatchService watcher;
+
+    private final LongAdder hits = Metrics.counter("web.assets.hits");
+    private final LongAdder misses = Metrics.counter("web.assets.misses");
+    private final LongAdder reloads = Metrics.counter("web.assets.reloads");
+
+    /**
+     * Loads every file under a directory. A missing directory leaves the cache empty.
+     *
+     * @param root the website's directory (ie: "web")
+     * @param maxCachedBytes files larger than this are served from disk
+     * @param watch true to reload files when they change
+     */
+    public StaticAssetCache(Path root, long maxCachedBytes, boolean watch) {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxCachedBytes = maxCachedBytes;
+
+        Metrics.gauge("web.assets.count", assets::size);
+        Metrics.gauge("web.assets.bytes", this::getCachedBytes);
+
+        if (!Files.isDirectory(this.root)) {
+            logger.log(Level.WARNING, "No website at " + this.root);
+            return;
+        }
+
+        if (watch) {
+            startWatching();
+        }
+
+        loadDirectory(this.root);
+        logger.info("Cached " + assets.size() + " web assets (" + getCachedBytes() + " bytes)");
+    }
+
+    /**
+     * Returns the asset for a request path
+     *
+     * @param uriPath the decoded path of a request URI (ie: "/css/main.css"); "/" and paths
+     *  ending with "/" map to index.html
+     * @return the asset, or null if there is no such file
+     */
+    public Asset get(String uriPath) {
+        String key = uriPath.startsWith("/") ? uriPath.substring(1) : uriPath;
+
+        if (key.isEmpty() || key.endsWith("/")) {
+            key += "index.html";
+        }
+
+        // Only files found under the root are in the map, so no path can escape it
+        Asset asset = assets.get(key);
+
+        if (asset != null) {
+            hits.increment();
+        }
+        else {
+            misses.increment();
+        }
+
+        return asset;
+    }
+
+    /**
+     * Stops reloading changed files
+     */
+    public void close() {
+
+        if (watcher != null) {
+            try {
+                watcher.close();
+            }
+            catch (IOException e) {
+                logger.log(Level.FINE, e.getMessage(), e);
+            }
+        }
+    }
+
+    private long getCachedBytes() {
+        long total = 0;
+
+        for (Asset asset : assets.values()) {
+            total += asset.getCachedBytes();
+        }
+
+        return total;
+    }
+
+    /**
+     * Loads every file under a directory, watching each directory for changes
+     */
+    private void loadDirectory(Path directory) {
+
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                        throws IOException {
+                    watch(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    load(file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads (or reloads) one file, dropping it from the cache if it no longer exists
+     */
+    private void load(Path file) {
+        String key = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+
+        try {
+            if (!Files.isRegularFile(file)) {
+                assets.remove(key);
+                return;
+            }
+
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            long size = Files.size(file);
+            String contentType = getContentType(file);
+            byte[] content = null;
+            byte[] gzipContent = null;
+
+            if (size <= maxCachedBytes) {
+                content = Files.readAllBytes(file);
+                size = content.length;
+
+                if (isCompressible(contentType) && size >= MIN_GZIP_BYTES) {
+                    gzipContent = gzip(content);
+                }
+            }
+
+            assets.put(key, new Asset(file, contentType, size, lastModified, content, gzipContent));
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Could not load " + file + ": " + e.getMessage(), e);
+            assets.remove(key);
+        }
+    }
+
+    private static String getContentType(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String type = dot < 0 ? null : CONTENT_TYPES.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+
+        if (type == null) {
+            type = Files.probeContentType(file);
+        }
+
+        return type != null ? type : "application/octet-stream";
+    }
+
+    private static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/javascript") ||
+                contentType.startsWith("application/json") || contentType.equals("image/svg+xml") ||
+                contentType.equals("image/x-icon");
+    }
+
+    /**
+     * Compresses a file once, as small as possible, returning null if it does not get smaller
+     */
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2);
+
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        }
+
+        return out.size() < content.length ? out.toByteArray() : null;
+    }
+
+    /* WATCHING */
+
+    private void startWatching() {
+
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            logger.log(Level.WARNING, "Web assets will not be reloaded: " + e.getMessage(), e);
+            return;
+        }
+
+        Thread thread = new Thread(this::watchForChanges, "web-asset-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(Path directory) throws IOException {
+
+        if (watcher != null) {
+            WatchKey key = directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirectories.put(key, directory);
+        }
+    }
+
+    private void watchForChanges() {
+
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Path directory = watchedDirectories.get(key);
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                        // Events were lost, so reload everything
+                        reloadAll();
+                        continue;
+                    }
+
+                    Path changed = directory.resolve((Path)event.context());
+                    reloads.increment();
+
+                    if (Files.isDirectory(changed)) {
+                        loadDirectory(changed);
+                    }
+                    else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        unload(changed);
+                    }
+                    else {
+                        load(changed);
+                    }
+                }
+
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.info("Stopped watching web assets");
+        }
+    }
+
+    /**
+     * Drops a deleted file, or every file under a deleted directory
+     */
+    private void unload(Path deleted) {
+        String key = root.relativize(deleted).toString().replace(deleted.getFileSystem().getSeparator(), "/");
+
+        assets.remove(key);
+        assets.keySet().removeIf(path -> path.startsWith(key + "/"));
+    }
+
+    private void reloadAll() {
+        reloads.increment();
+        assets.clear();
+        loadDirectory(root);
+    }
+
+    /**
+     * One file of the website. The cached content must not be modified.
+     */
+    public static class Asset {
+
+        private final Path path;
+        private final String contentType;
+        private final long size;
+        private final long lastModified;
+        private final String etag;
+        private final byte[] content;
+        private final byte[] gzipContent;
+
+        Asset(Path path, String contentType, long size, long lastModified, byte[] content,
+              byte[] gzipContent) {
+            this.path = path;
+            this.contentType = contentType;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.content = content;
+            this.gzipContent = gzipContent;
+
+            etag = "\"" + Long.toString(size, 36) + "-" + Long.toString(lastModified, 36) + "\"";
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the file's modification time, in milliseconds since the epoch
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return a strong entity tag built from the file's size and modification time
+         */
+        public String getETag() {
+            return etag;
+        }
+
+        public boolean isCompressible() {
+            return StaticAssetCache.isCompressible(contentType);
+        }
+
+        /**
+         * @return the file's content, or null if the file is too large to cache and must be read
+         *  from getPath()
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * @return the gzip-compressed content, or null if there is no compressed variant
+         */
+        public byte[] getGzipContent() {
+            return gzipContent;
+        }
+
+        long getCachedBytes() {
+            return (content != null ? content.length : 0) + (gzipContent != null ? gzipContent.length : 0);
+        }
+    }
+}
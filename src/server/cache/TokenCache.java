@@ -0,0 +1,185 @@
+package server.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import server.ServerConfig;
+import server.database.model.User;
+import server.metrics.Metrics;
+
+/**
+ * Remembers which User each AuthToken value belongs to, so authenticated requests can skip the
+ *  AuthTokens and Users lookups. Entries expire after a fixed time, and roughly the least recently
+ *  used entries are evicted when the cache is full. Lookups never lock.
+ */
+public class TokenCache {
+
+    /* STATIC */
+    private static final TokenCache instance = new TokenCache(
+            ServerConfig.getInt(ServerConfig.TOKEN_CACHE_SIZE, 10000),
+            TimeUnit.SECONDS.toMillis(ServerConfig.getInt(ServerConfig.TOKEN_CACHE_TTL_SECONDS, 3600)));
+
+    /**
+     * Returns the cache shared by every service
+     *
+     * @return the shared cache
+     */
+    public static TokenCache getInstance() {
+        return instance;
+    }
+
+    /* NON-STATIC */
+    private final int maxSize;
+    private final int evictTo;
+    private final long ttlNanos;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>(256);
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = Metrics.counter("cache.tokens.hits");
+    private final LongAdder misses = Metrics.counter("cache.tokens.misses");
+    private final LongAdder evictions = Metrics.counter("cache.tokens.evictions");
+
+    /**
+     * Creates an empty cache
+     *
+     * @param maxSize the maximum number of tokens to remember
+     * @param ttlMillis how long a token is remembered
+     */
+    TokenCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.evictTo = maxSize - Math.max(1, maxSize / 10);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+
+        Metrics.gauge("cache.tokens.size", this::size);
+        Metrics.gauge("cache.tokens.hitRatePercent", () -> {
+            long hitCount = hits.sum();
+            long total = hitCount + misses.sum();
+            return total == 0 ? 0 : hitCount * 100 / total;
+        });
+    }
+
+    /**
+     * Returns the User a token belongs to, if the token is cached and has not expired. Never
+     *  locks.
+     *
+     * @param tokenValue the AuthToken's value
+     * @return the User, or null on a cache miss
+     */
+    public User get(String tokenValue) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(tokenValue);
+
+        if (entry != null && now - entry.cachedAt < ttlNanos) {
+            entry.touch(now);
+            hits.increment();
+            return entry.user;
+        }
+
+        if (entry != null) {
+            entries.remove(tokenValue, entry);
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Returns the cache's generation, which changes whenever the cache is invalidated. Read it
+     *  before looking a token up in the database and pass it to put().
+     *
+     * @return the current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Remembers a token's User, unless the cache was invalidated since the User was read
+     *
+     * @param tokenValue the AuthToken's value
+     * @param user the User the token belongs to
+     * @param readGeneration the value of getGeneration() before the User was read
+     */
+    public void put(String tokenValue, User user, long readGeneration) {
+        assert tokenValue != null : "null token value";
+        assert user != null : "null user";
+
+        if (generation.get() != readGeneration) {
+            return;
+        }
+
+        Entry entry = new Entry(user, System.nanoTime());
+        entries.put(tokenValue, entry);
+
+        // invalidateAll() may have run since the check above, after its clear() or before it
+        if (generation.get() != readGeneration) {
+            entries.remove(tokenValue, entry);
+            return;
+        }
+
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Forgets every token. Call after committing a change that removes tokens or users
+     *  (ie: /clear and /load).
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops expired tokens, then the least recently used ones until the cache is a tenth below
+     *  its limit, so the entries are only sorted once every few hundred puts. Only one thread
+     *  evicts at a time; the others carry on.
+     */
+    private void evict() {
+
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            long now = System.nanoTime();
+
+            for (AccessTracked.Candidate<String, Entry> candidate : AccessTracked.leastRecentlyUsed(entries)) {
+
+                boolean expired = now - candidate.entry.cachedAt >= ttlNanos;
+
+                if (!expired && entries.size() <= evictTo) {
+                    continue;
+                }
+
+                if (entries.remove(candidate.key, candidate.entry) && !expired) {
+                    evictions.increment();
+                }
+            }
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static class Entry extends AccessTracked {
+
+        final User user;
+        final long cachedAt;
+
+        Entry(User user, long cachedAt) {
+            this.user = user;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package server.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+import server.metrics.Metrics;
+
+/**
+ * A read-through cache of one value per user (ie: the user's PeopleResponse), bounded by the
+ *  total weight (ie: number of rows) of the cached values. Entries are tagged with the user's
+ *  DataVersions version and are dropped as soon as the user's data changes. Roughly the least
+ *  recently used users are evicted when the cache is full. Lookups never lock.
+ *
+ * @param <V> the cached value's type, which must not be modified once cached
+ */
+public class UserDataCache<V> implements DataVersions.InvalidationListener {
+
+    private final long maxWeight;
+    private final long evictTo;
+    private final ToIntFunction<V> weigher;
+    private final ConcurrentMap<String, Entry<V>> entries = new ConcurrentHashMap<>(64);
+    private final AtomicLong weight = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    /**
+     * Creates an empty cache and registers its metrics under "[name].*"
+     *
+     * @param name the cache's metric prefix (ie: "cache.people")
+     * @param maxWeight the maximum total weight of the cached values
+     * @param weigher returns a value's weight
+     */
+    public UserDataCache(String name, long maxWeight, ToIntFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.evictTo = maxWeight - maxWeight / 10;
+        this.weigher = weigher;
+
+        hits = Metrics.counter(name + ".hits");
+        misses = Metrics.counter(name + ".misses");
+        evictions = Metrics.counter(name + ".evictions");
+        Metrics.gauge(name + ".users", this::size);
+        Metrics.gauge(name + ".weight", this::getWeight);
+
+        DataVersions.addListener(this);
+    }
+
+    /**
+     * Returns a user's cached value, if it is still current. Never locks.
+     *
+     * @param username the user's username
+     * @return the cached value, or null on a miss
+     */
+    public V get(String username) {
+        long version = DataVersions.get(username);
+        Entry<V> entry = entries.get(username);
+
+        if (entry != null && entry.version == version) {
+            entry.touch(System.nanoTime());
+            hits.increment();
+            return entry.value;
+        }
+
+        if (entry != null) {
+            remove(username, entry);
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches a user's value, unless the user's data changed after the value was read
+     *
+     * @param username the user's username
+     * @param readStart the value of DataVersions.now() before the value was read from the database
+     * @param value the value to cache
+     */
+    public void put(String username, long readStart, V value) {
+        long version = DataVersions.get(username);
+        int valueWeight = weigher.applyAsInt(value);
+
+        if (version > readStart || valueWeight > maxWeight) {
+            return;
+        }
+
+        Entry<V> replaced = entries.put(username, new Entry<>(value, version, valueWeight));
+        weight.addAndGet(replaced == null ? valueWeight : valueWeight - replaced.weight);
+
+        if (weight.get() > maxWeight) {
+            evict();
+        }
+    }
+
+    @Override
+    public void invalidate(String username) {
+        Entry<V> entry = entries.get(username);
+
+        if (entry != null) {
+            remove(username, entry);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+
+        for (Map.Entry<String, Entry<V>> entry : entries.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    public long getWeight() {
+        return weight.get();
+    }
+
+    /**
+     * Removes an entry unless it has been replaced, keeping the total weight in step
+     *
+     * @return true if the entry was removed
+     */
+    private boolean remove(String username, Entry<V> entry) {
+
+        if (entries.remove(username, entry)) {
+            weight.addAndGet(-entry.weight);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Drops the least recently used users until the cache is a tenth below its limit, so the
+     *  entries are only sorted once in a while. Only one thread evicts at a time; the others carry
+     *  on.
+     */
+    private void evict() {
+
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            for (AccessTracked.Candidate<String, Entry<V>> candidate : AccessTracked.leastRecentlyUsed(entries)) {
+
+                if (weight.get() <= evictTo) {
+                    break;
+                }
+
+                if (remove(candidate.key, candidate.entry)) {
+                    evictions.increment();
+                }
+            }
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static class Entry<V> extends AccessTracked {
+
+        final V value;
+        final long version;
+        final int weight;
+
+        Entry(V value, long version, int weight) {
+            this.value = value;
+            this.version = version;
+            this.weight = weight;
+        }
+    }
+}
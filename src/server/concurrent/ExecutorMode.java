@@ -0,0 +1,41 @@
+package server.concurrent;
+
+/**
+ * The ways the server can dispatch HTTP exchanges to handlers
+ */
+public enum ExecutorMode {
+
+    /**
+     * Every exchange runs on the HttpServer's single dispatcher thread
+     */
+    DISPATCHER,
+
+    /**
+     * Exchanges run on a fixed pool of platform threads
+     */
+    POOLED,
+
+    /**
+     * Every exchange runs on its own virtual thread (falls back to POOLED on runtimes without
+     *  virtual threads)
+     */
+    VIRTUAL;
+
+    /**
+     * Parses a mode name, ignoring case
+     *
+     * @param name the mode name (ie: "virtual")
+     * @param defaultMode the mode to use if the name is not recognized
+     * @return the matching mode
+     */
+    public static ExecutorMode parse(String name, ExecutorMode defaultMode) {
+
+        for (ExecutorMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+
+        return defaultMode;
+    }
+}
@@ -0,0 +1,103 @@
+package server.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the executors that run HTTP exchanges
+ */
+public final class RequestExecutors {
+
+    /* STATIC */
+    private static Logger logger;
+
+    static {
+        logger = Logger.getLogger("famServer");
+    }
+
+    private RequestExecutors() {}
+
+    /**
+     * Creates an executor for the given mode
+     *
+     * @param mode the requested dispatch mode
+     * @param workers the number of threads to use if a platform thread pool is created
+     * @return the executor, or null for DISPATCHER (HttpServer's default executor)
+     */
+    public static ExecutorService create(ExecutorMode mode, int workers) {
+        assert mode != null : "null mode";
+
+        switch (mode) {
+            case DISPATCHER:
+                logger.info("Using the HttpServer dispatcher thread");
+                return null;
+
+            case VIRTUAL:
+                ExecutorService virtual = newVirtualThreadExecutor();
+
+                if (virtual != null) {
+                    logger.info("Using a virtual thread per request");
+                    return virtual;
+                }
+
+                logger.log(Level.WARNING, "Virtual threads unavailable, falling back to a thread pool");
+                logger.info("Using a pool of " + workers + " request threads");
+                return newPlatformThreadPool(workers, "request");
+
+            default:
+                logger.info("Using a pool of " + workers + " request threads");
+                return newPlatformThreadPool(workers, "request");
+        }
+    }
+
+    /**
+     * Creates a fixed pool of named platform threads
+     *
+     * @param threads the number of threads in the pool
+     * @param namePrefix the prefix for each thread's name
+     * @return the executor
+     */
+    public static ExecutorService newPlatformThreadPool(int threads, String namePrefix) {
+        assert threads > 0 : "invalid thread count";
+        return Executors.newFixedThreadPool(threads, namedThreadFactory(namePrefix));
+    }
+
+    /**
+     * Returns a thread factory that numbers its threads (ie: request-1, request-2)
+     *
+     * @param namePrefix the prefix for each thread's name
+     * @return the thread factory
+     */
+    public static ThreadFactory namedThreadFactory(String namePrefix) {
+        final AtomicInteger count = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Looks up Executors.newVirtualThreadPerTaskExecutor() reflectively, so the server still
+     *  builds and runs on runtimes that predate virtual threads
+     *
+     * @return a virtual thread executor, or null if the runtime does not support them
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)factory.invoke(null);
+        }
+        catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            logger.log(Level.FINE, e.getMessage(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package server.concurrent;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import server.metrics.Metrics;
+import server.metrics.Timer;
+
+/**
+ * Limits how many requests may run at once, with a bounded number of requests allowed to wait
+ *  for a free slot. Requests that find the queue full, or that wait too long, are rejected.
+ */
+public class RequestGate {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitMillis;
+
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final LongAdder admitted;
+    private final LongAdder rejected;
+    private final Timer waitTimer;
+
+    /**
+     * Creates a gate and registers its metrics under "[name].*"
+     *
+     * @param name the gate's metric prefix (ie: "requests")
+     * @param maxConcurrent the number of requests that may run at once
+     * @param maxQueued the number of requests that may wait for a slot
+     * @param maxWaitMillis how long a queued request may wait before it is rejected
+     */
+    public RequestGate(String name, int maxConcurrent, int maxQueued, long maxWaitMillis) {
+        assert maxConcurrent > 0 : "invalid maxConcurrent";
+        assert maxQueued >= 0 : "invalid maxQueued";
+
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitMillis = maxWaitMillis;
+
+        permits = new Semaphore(maxConcurrent, true);
+        admitted = Metrics.counter(name + ".admitted");
+        rejected = Metrics.counter(name + ".rejected");
+        waitTimer = Metrics.timer(name + ".wait");
+
+        Metrics.gauge(name + ".queue.depth", queued::get);
+        Metrics.gauge(name + ".active", () -> maxConcurrent - permits.availablePermits());
+    }
+
+    /**
+     * Waits for a free slot. Every successful call must be paired with a call to exit().
+     *
+     * @return true if the request was admitted, false if it should be rejected
+     */
+    public boolean enter() {
+        long start = System.nanoTime();
+
+        // An untimed tryAcquire() barges past a fair semaphore's queue, so only take the fast
+        //  path when nobody is waiting
+        if (!permits.hasQueuedThreads() && permits.tryAcquire()) {
+            waitTimer.recordSince(start);
+            admitted.increment();
+            return true;
+        }
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+
+        boolean acquired = false;
+
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            queued.decrementAndGet();
+        }
+
+        waitTimer.recordSince(start);
+
+        if (acquired) {
+            admitted.increment();
+        }
+        else {
+            rejected.increment();
+        }
+
+        return acquired;
+    }
+
+    /**
+     * Waits as long as it takes for a free slot, for work that has already been queued elsewhere
+     *  (ie: background fills). Does not count against the gate's queue. Must be paired with a call
+     *  to exit().
+     */
+    public void enterUninterruptibly() {
+        long start = System.nanoTime();
+        permits.acquireUninterruptibly();
+        waitTimer.recordSince(start);
+        admitted.increment();
+    }
+
+    /**
+     * Releases the slot taken by a successful call to enter()
+     */
+    public void exit() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+}
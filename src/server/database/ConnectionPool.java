@@ -0,0 +1,348 @@
+package server.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import server.metrics.Metrics;
+import server.metrics.Timer;
+
+/**
+ * A bounded pool of open database connections. Connections are validated when borrowed, and
+ *  connections held longer than the leak threshold are reported (along with where they were
+ *  borrowed, when leak tracing is on). Each connection keeps its own StatementCache for as long
+ *  as it stays open.
+ */
+public class ConnectionPool {
+
+    /* STATIC */
+    private static final String DRIVER = "org.sqlite.JDBC";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    private static final int STATEMENT_CACHE_CAPACITY = 32;
+    private static Logger logger;
+
+    static {
+        logger = Logger.getLogger("famServer");
+    }
+
+    /* NON-STATIC */
+    private final String name;
+    private final String connectionURL;
+    private final StorageProfile profile;
+    private final boolean readOnly;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdNanos;
+    private final boolean traceLeaks;
+
+    private final Semaphore available;
+    private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, Lease> leases = new ConcurrentHashMap<>();
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private final ScheduledExecutorService leakDetector;
+
+    private final LongAdder borrows;
+    private final LongAdder created;
+    private final LongAdder discarded;
+    private final LongAdder leaks;
+    private final Timer waitTimer;
+
+    /**
+     * Creates a pool and registers its metrics under "[name].*"
+     *
+     * @param name the pool's metric prefix (ie: "db.pool")
+     * @param connectionURL the JDBC url of the database
+     * @param profile the settings applied to every new connection
+     * @param readOnly true if the pool's connections should only allow reads
+     * @param maxSize the maximum number of open connections
+     * @param borrowTimeoutMillis how long borrow() waits for a free connection
+     * @param leakThresholdMillis how long a connection may be held before it is reported as leaked
+     * @param traceLeaks true to record where each connection is borrowed, so leak reports can say
+     *  where the leaked connection came from (costs a stack trace per borrow)
+     * @throws DatabaseError if the database driver cannot be loaded
+     */
+    public ConnectionPool(String name, String connectionURL, StorageProfile profile, boolean readOnly,
+                          int maxSize, long borrowTimeoutMillis, long leakThresholdMillis,
+                          boolean traceLeaks)
+            throws DatabaseError {
+        assert maxSize > 0 : "invalid pool size";
+
+        try {
+            Class.forName(DRIVER);
+        }
+        catch (ClassNotFoundException e) {
+            DatabaseError error = new DatabaseError("Could not load database driver");
+            logger.log(Level.SEVERE, "Could not load database driver", error);
+            throw error;
+        }
+
+        this.name = name;
+        this.connectionURL = connectionURL;
+        this.profile = profile;
+        this.readOnly = readOnly;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+        this.traceLeaks = traceLeaks;
+
+        available = new Semaphore(maxSize, true);
+        borrows = Metrics.counter(name + ".borrows");
+        created = Metrics.counter(name + ".created");
+        discarded = Metrics.counter(name + ".discarded");
+        leaks = Metrics.counter(name + ".leaks");
+        waitTimer = Metrics.timer(name + ".wait");
+
+        Metrics.gauge(name + ".open", open::get);
+        Metrics.gauge(name + ".idle", idle::size);
+        Metrics.gauge(name + ".borrowed", leases::size);
+
+        long period = Math.max(1000, leakThresholdMillis / 2);
+        leakDetector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        leakDetector.scheduleAtFixedRate(this::reportLeaks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a valid connection, opening a new one if none are idle. The connection must be
+     *  handed back with release().
+     *
+     * @return an open connection
+     * @throws DatabaseError if no connection is free within the borrow timeout, or one cannot be
+     *  opened
+     */
+    public Connection borrow() throws DatabaseError {
+        long start = System.nanoTime();
+
+        try {
+            if (!available.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new DatabaseError("Timed out waiting for a database connection");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseError("Interrupted waiting for a database connection");
+        }
+
+        waitTimer.recordSince(start);
+
+        try {
+            Connection connection = takeIdle();
+
+            if (connection == null) {
+                connection = create();
+            }
+
+            leases.put(connection, new Lease(traceLeaks));
+            borrows.increment();
+            return connection;
+        }
+        catch (DatabaseError | RuntimeException e) {
+            available.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool. The caller must have already committed or
+     *  rolled back its transaction.
+     *
+     * @param connection the borrowed connection
+     */
+    public void release(Connection connection) {
+        assert connection != null : "null connection";
+
+        if (leases.remove(connection) == null) {
+            logger.log(Level.WARNING, name + ": released a connection it did not lend");
+            return;
+        }
+
+        try {
+            if (connection.isClosed()) {
+                discard(connection);
+            }
+            else {
+                idle.offerFirst(connection);
+            }
+        }
+        catch (SQLException e) {
+            discard(connection);
+        }
+        finally {
+            available.release();
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops leak detection. Borrowed connections are closed when
+     *  they are released.
+     */
+    public void shutdown() {
+        leakDetector.shutdownNow();
+        Connection connection;
+
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * Returns the statement cache of a connection borrowed from this pool
+     *
+     * @param connection the borrowed connection
+     * @return the connection's statement cache
+     */
+    public StatementCache getStatementCache(Connection connection) {
+        StatementCache cache = statementCaches.get(connection);
+        assert cache != null : "connection does not belong to this pool";
+        return cache;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Returns the most recently used idle connection that is still valid, discarding any that
+     *  are not
+     */
+    private Connection takeIdle() {
+        Connection connection;
+
+        while ((connection = idle.pollFirst()) != null) {
+            try {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    return connection;
+                }
+            }
+            catch (SQLException e) {
+                logger.log(Level.FINE, e.getMessage(), e);
+            }
+
+            logger.log(Level.WARNING, name + ": discarding invalid connection");
+            discard(connection);
+        }
+
+        return null;
+    }
+
+    /**
+     * Opens a new connection and applies the storage profile to it
+     *
+     * @return the new connection
+     * @throws DatabaseError if the connection could not be opened
+     */
+    private Connection create() throws DatabaseError {
+        logger.info(name + ": opening database connection");
+        Connection connection = null;
+
+        try {
+            connection = DriverManager.getConnection(connectionURL,
+                    profile.getConnectionProperties(readOnly));
+            profile.apply(connection, readOnly);
+            statementCaches.put(connection, new StatementCache(connection, STATEMENT_CACHE_CAPACITY));
+
+            open.incrementAndGet();
+            created.increment();
+            return connection;
+        }
+        catch (SQLException e) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                }
+                catch (SQLException closeError) {
+                    logger.log(Level.FINE, closeError.getMessage(), closeError);
+                }
+            }
+
+            throw new DatabaseError("Could not connect to database: " + e.getMessage());
+        }
+    }
+
+    private void discard(Connection connection) {
+        discarded.increment();
+        open.decrementAndGet();
+
+        StatementCache cache = statementCaches.remove(connection);
+
+        if (cache != null) {
+            cache.close();
+        }
+
+        try {
+            connection.close();
+        }
+        catch (SQLException e) {
+            logger.log(Level.FINE, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Logs every connection that has been borrowed for longer than the leak threshold
+     */
+    private void reportLeaks() {
+        long now = System.nanoTime();
+        List<Lease> leaked = new ArrayList<>();
+
+        for (Lease lease : leases.values()) {
+            if (!lease.reported && now - lease.borrowedAt > leakThresholdNanos) {
+                lease.reported = true;
+                leaked.add(lease);
+            }
+        }
+
+        for (Lease lease : leaked) {
+            leaks.increment();
+            String message = name + ": connection held by " + lease.threadName + " for " +
+                    TimeUnit.NANOSECONDS.toMillis(now - lease.borrowedAt) + "ms was never released";
+
+            if (lease.borrowSite != null) {
+                logger.log(Level.WARNING, message, lease.borrowSite);
+            }
+            else {
+                logger.log(Level.WARNING, message + " (set famserver.db.traceLeaks=true to " +
+                        "log where it was borrowed)");
+            }
+        }
+    }
+
+    /**
+     * Records who borrowed a connection and when
+     */
+    private static class Lease {
+
+        final long borrowedAt = System.nanoTime();
+        final String threadName = Thread.currentThread().getName();
+        final Exception borrowSite;
+        volatile boolean reported;
+
+        Lease(boolean trace) {
+            borrowSite = trace ? new Exception("Connection borrowed here") : null;
+        }
+    }
+}
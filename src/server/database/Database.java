@@ -10,55 +10,128 @@ import java.util.logging.Logger;
 
 
 /**
- * Manages database connections
+ * Manages database connections. Writes borrow the single pooled writer connection, so they are
+ *  serialized; reads borrow from a pool of read-only connections that never wait for the writer
+ *  when the database runs in WAL mode.
  */
 public class Database {
 
+    /* STATIC */
+    private static final String CONNECTION_URL = "jdbc:sqlite:db/server.sqlite";
     private static Logger logger;
+    private static volatile ConnectionPool writers;
+    private static volatile ConnectionPool readers;
 
     static {
         logger = Logger.getLogger("famServer");
     }
 
+    /**
+     * Creates the pools that every Database borrows its connections from. Called once by the
+     *  server at startup.
+     *
+     * @param profile the SQLite settings for every connection, including the number of readers
+     * @param readTimeoutMillis how long a read waits for a free reader connection
+     * @param writeTimeoutMillis how long a write waits for the writer connection
+     * @param leakThresholdMillis how long a connection may be held before it is reported as leaked
+     * @param traceLeaks true to record where each connection is borrowed, for leak reports
+     * @throws DatabaseError if the database cannot be opened
+     */
+    public static synchronized void initialize(StorageProfile profile, long readTimeoutMillis,
+                                               long writeTimeoutMillis, long leakThresholdMillis,
+                                               boolean traceLeaks)
+            throws DatabaseError {
+        logger.info("Storage profile: " + profile);
+        shutdown();
+
+        ConnectionPool writer = new ConnectionPool("db.writer", CONNECTION_URL, profile, false, 1,
+                                                   writeTimeoutMillis, leakThresholdMillis, traceLeaks);
+        ConnectionPool reader = new ConnectionPool("db.readers", CONNECTION_URL, profile, true,
+                                                   profile.getReaders(), readTimeoutMillis,
+                                                   leakThresholdMillis, traceLeaks);
+
+        // Open the writer first so the journal mode is set before any reader connects
+        writer.release(writer.borrow());
+
+        // getPool() only checks the writer, so publish the readers first
+        readers = reader;
+        writers = writer;
+    }
+
+    /**
+     * Closes the pools' idle connections
+     */
+    public static synchronized void shutdown() {
+
+        if (writers != null) {
+            writers.shutdown();
+            readers.shutdown();
+        }
+    }
+
+    /**
+     * Returns the writer or reader pool, creating both with default settings if the server has not
+     */
+    private static ConnectionPool getPool(boolean readOnly) throws DatabaseError {
+
+        if (writers == null) {
+            synchronized (Database.class) {
+                if (writers == null) {
+                    initialize(StorageProfile.named("wal"), 5000, 30000, 30000, false);
+                }
+            }
+        }
+
+        return readOnly ? readers : writers;
+    }
+
+    /* NON-STATIC */
+
     private AuthTokenDAO authTokenDAO;
     private EventDAO eventDAO;
     private PersonDAO personDAO;
     private UserDAO userDAO;
 
     private Connection connection;
+    private StatementCache statements;
+    private ConnectionPool lender;
 
     /**
-     * Opens a connection to the database
+     * Borrows the writer connection and starts a transaction
      * @throws DatabaseError if there is a problem opening the database connection
      */
     public void openConnection() throws DatabaseError {
-        logger.info("Opening database connection");
+        openConnection(false);
+    }
 
-        try {
-            final String driver = "org.sqlite.JDBC";
-            Class.forName(driver);
-        }
-        catch(ClassNotFoundException e) {
-            Error error = new DatabaseError("Could not load database driver");
-            logger.log(Level.SEVERE, "Could not load database driver", error);
-            throw error;
-        }
+    /**
+     * Borrows a read-only connection and starts a transaction, so every query sees the same
+     *  snapshot of the database
+     * @throws DatabaseError if there is a problem opening the database connection
+     */
+    public void openReadConnection() throws DatabaseError {
+        openConnection(true);
+    }
 
-        final String connectionURL = "jdbc:sqlite:db/server.sqlite";
+    private void openConnection(boolean readOnly) throws DatabaseError {
+        logger.info("Opening " + (readOnly ? "read" : "write") + " connection");
+        ConnectionPool source = getPool(readOnly);
+        connection = source.borrow();
+        statements = source.getStatementCache(connection);
+        lender = source;
 
         try {
-            // Open a database connection
-            connection = DriverManager.getConnection(connectionURL);
             // Start a transaction
             connection.setAutoCommit(false);
         }
         catch (SQLException e) {
+            release();
             throw new DatabaseError("Could not connect to database: " + e.getMessage());
         }
     }
 
     /**
-     * Closes a connection to the database
+     * Ends the current transaction and returns the connection to the pool
      * @param commit true to commit changes, false to roll back
      * @throws DatabaseError if there is a problem closing the database connection
      */
@@ -66,7 +139,8 @@ public class Database {
         assert connection != null : "No open connection";
 
         try {
-            if (commit) {
+            // Read transactions have nothing to commit
+            if (commit && !lender.isReadOnly()) {
                 connection.commit();
             }
             else {
@@ -74,18 +148,34 @@ public class Database {
             }
         }
         catch (SQLException e) {
-            throw new DatabaseError("Failed to commit/rollback: " + e.getMessage());
-        }
-        finally {
+            // Never hand an open transaction back to the pool
             try {
                 connection.close();
             }
-            catch (SQLException e) {
-                throw new DatabaseError("Failed to close connection: " + e.getMessage());
+            catch (SQLException closeError) {
+                logger.log(Level.FINE, closeError.getMessage(), closeError);
             }
+
+            throw new DatabaseError("Failed to commit/rollback: " + e.getMessage());
         }
+        finally {
+            release();
+        }
+    }
 
+    /**
+     * Returns the connection to the pool and forgets the DAOs that were bound to it
+     */
+    private void release() {
+        lender.release(connection);
         connection = null;
+        statements = null;
+        lender = null;
+
+        authTokenDAO = null;
+        eventDAO = null;
+        personDAO = null;
+        userDAO = null;
     }
 
     /**
@@ -97,10 +187,18 @@ public class Database {
         return (connection != null);
     }
 
+    /**
+     * Returns the open connection, for schema changes that are not owned by a DAO
+     */
+    Connection getConnection() {
+        assert connection != null : "No open connection";
+        return connection;
+    }
+
     public AuthTokenDAO getAuthTokenDAO() {
         assert connection != null : "You must open a connection before accessing a DAO";
         if (authTokenDAO == null) {
-            authTokenDAO = new AuthTokenDAO(connection);
+            authTokenDAO = new AuthTokenDAO(connection, statements);
         }
         return authTokenDAO;
     }
@@ -108,7 +206,7 @@ public class Database {
     public EventDAO getEventDAO() {
         assert connection != null : "You must open a connection before accessing a DAO";
         if (eventDAO == null) {
-            eventDAO = new EventDAO(connection);
+            eventDAO = new EventDAO(connection, statements);
         }
         return eventDAO;
     }
@@ -116,7 +214,7 @@ public class Database {
     public PersonDAO getPersonDAO() {
         assert connection != null : "You must open a connection before accessing a DAO";
         if (personDAO == null) {
-            personDAO = new PersonDAO(connection);
+            personDAO = new PersonDAO(connection, statements);
         }
         return personDAO;
     }
@@ -124,7 +222,7 @@ public class Database {
     public UserDAO getUserDAO() {
         assert connection != null : "You must open a connection before accessing a DAO";
         if (userDAO == null) {
-            userDAO = new UserDAO(connection);
+            userDAO = new UserDAO(connection, statements);
         }
         return userDAO;
     }
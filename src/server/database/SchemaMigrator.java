@@ -0,0 +1,152 @@
+package server.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Brings the database schema up to date. Each migration has a version number; the versions that
+ *  have been applied are recorded in the SchemaVersion table, and migrations newer than the
+ *  recorded version are applied in order, in one transaction, when the server starts.
+ */
+public class SchemaMigrator {
+
+    /* STATIC */
+    private static Logger logger;
+
+    static {
+        logger = Logger.getLogger("famServer");
+    }
+
+    private static final String createVersionTable =
+                "CREATE TABLE IF NOT EXISTS SchemaVersion (\n" +
+                    "\tversion INTEGER NOT NULL PRIMARY KEY,\n" +
+                    "\tdescription TEXT NOT NULL,\n" +
+                    "\tapplied_at TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP\n" +
+                    ");";
+
+    private static final String currentVersionQuery =
+                "SELECT COALESCE(MAX(version), 0)\n" +
+                    "FROM SchemaVersion;";
+
+    private static final String insertVersion =
+                "INSERT INTO SchemaVersion (version, description)\n" +
+                    "VALUES (?, ?);";
+
+    /* NON-STATIC */
+    private final List<Migration> migrations = new ArrayList<>();
+
+    /**
+     * Creates a migrator that knows every migration of the current schema
+     */
+    public SchemaMigrator() {
+
+        migrations.add(new Migration(1, "Create base tables") {
+            @Override
+            void apply(Database db, Statement stmt) throws DatabaseError {
+
+                // Databases created before migrations existed already have these tables
+                if (!db.getUserDAO().tableExists()) {
+                    db.getUserDAO().createTable();
+                }
+                if (!db.getPersonDAO().tableExists()) {
+                    db.getPersonDAO().createTable();
+                }
+                if (!db.getEventDAO().tableExists()) {
+                    db.getEventDAO().createTable();
+                }
+                if (!db.getAuthTokenDAO().tableExists()) {
+                    db.getAuthTokenDAO().createTable();
+                }
+            }
+        });
+
+        migrations.add(new Migration(2, "Index per-user lookups") {
+            @Override
+            void apply(Database db, Statement stmt) throws SQLException {
+                // (descendant, pid) also covers the "descendant = ? AND pid != ?" delete
+                stmt.executeUpdate("CREATE INDEX IF NOT EXISTS Persons_descendant_pid " +
+                        "ON Persons (descendant, pid);");
+                stmt.executeUpdate("CREATE INDEX IF NOT EXISTS Events_descendant_pid " +
+                        "ON Events (descendant, pid);");
+                stmt.executeUpdate("CREATE INDEX IF NOT EXISTS AuthTokens_uid " +
+                        "ON AuthTokens (uid);");
+                stmt.executeUpdate("ANALYZE;");
+            }
+        });
+    }
+
+    /**
+     * Applies every migration newer than the database's recorded schema version
+     *
+     * @throws DatabaseError if a migration fails (no migrations are applied in that case)
+     */
+    public void migrate() throws DatabaseError {
+        Database db = new Database();
+        db.openConnection();
+        boolean commit = false;
+
+        try (Statement stmt = db.getConnection().createStatement()) {
+            stmt.executeUpdate(createVersionTable);
+            int current = getCurrentVersion(db.getConnection());
+            logger.info("Schema version " + current);
+
+            for (Migration migration : migrations) {
+                if (migration.version > current) {
+                    logger.info("Applying migration " + migration.version + ": " +
+                            migration.description);
+                    migration.apply(db, stmt);
+                    recordVersion(db.getConnection(), migration);
+                }
+            }
+
+            commit = true;
+        }
+        catch (SQLException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new DatabaseError("Schema migration failed: " + e.getMessage());
+        }
+        finally {
+            db.closeConnection(commit);
+        }
+    }
+
+    private int getCurrentVersion(Connection connection) throws SQLException {
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(currentVersionQuery)) {
+            return rs.getInt(1);
+        }
+    }
+
+    private void recordVersion(Connection connection, Migration migration) throws SQLException {
+
+        try (PreparedStatement stmt = connection.prepareStatement(insertVersion)) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * One versioned change to the schema
+     */
+    private abstract static class Migration {
+
+        final int version;
+        final String description;
+
+        Migration(int version, String description) {
+            this.version = version;
+            this.description = description;
+        }
+
+        abstract void apply(Database db, Statement stmt) throws SQLException, DatabaseError;
+    }
+}
@@ -0,0 +1,108 @@
+package server.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import server.metrics.Metrics;
+
+/**
+ * Keeps the prepared statements of one pooled connection, keyed by SQL, so each query is only
+ *  parsed once per connection. The least recently used statement is closed when the cache is
+ *  full. Statements returned by the cache must not be closed by the caller.
+ *
+ * A connection is only used by one request at a time, so the cache is not thread safe.
+ */
+public class StatementCache {
+
+    /* STATIC */
+    private static final LongAdder hits = Metrics.counter("db.statements.hits");
+    private static final LongAdder misses = Metrics.counter("db.statements.misses");
+    private static final LongAdder evictions = Metrics.counter("db.statements.evictions");
+    private static Logger logger;
+
+    static {
+        logger = Logger.getLogger("famServer");
+    }
+
+    /* NON-STATIC */
+    private final Connection connection;
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    /**
+     * Creates an empty cache for a connection
+     *
+     * @param connection the connection the statements are prepared on
+     * @param capacity the maximum number of statements to keep open
+     */
+    StatementCache(Connection connection, int capacity) {
+        assert connection != null : "null connection";
+        assert capacity > 0 : "invalid capacity";
+        this.connection = connection;
+        this.capacity = capacity;
+        statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the prepared statement for a query, preparing it on a cache miss
+     *
+     * @param sql the statement's sql
+     * @return the prepared statement, with its parameters cleared
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+
+        if (stmt != null && !stmt.isClosed()) {
+            hits.increment();
+            stmt.clearParameters();
+            return stmt;
+        }
+
+        misses.increment();
+        stmt = connection.prepareStatement(sql);
+        statements.put(sql, stmt);
+        evictOverflow();
+
+        return stmt;
+    }
+
+    /**
+     * Closes every cached statement
+     */
+    void close() {
+
+        for (PreparedStatement stmt : statements.values()) {
+            closeQuietly(stmt);
+        }
+
+        statements.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, PreparedStatement>> eldest = statements.entrySet().iterator();
+
+        while (statements.size() > capacity && eldest.hasNext()) {
+            closeQuietly(eldest.next().getValue());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void closeQuietly(PreparedStatement stmt) {
+
+        try {
+            stmt.close();
+        }
+        catch (SQLException e) {
+            logger.log(Level.FINE, e.getMessage(), e);
+        }
+    }
+}
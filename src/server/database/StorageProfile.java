@@ -0,0 +1,178 @@
+package server.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * The SQLite settings applied to every new connection. The "wal" profile lets readers run
+ *  alongside the single writer; the "legacy" profile keeps SQLite's rollback journal defaults.
+ */
+public class StorageProfile {
+
+    /* STATIC */
+    /**
+     * SQLite's SQLITE_OPEN_READONLY flag, passed to the driver through the "open_mode" property
+     */
+    private static final String OPEN_READ_ONLY = "1";
+
+    /**
+     * Returns a named profile's defaults
+     *
+     * @param name "wal" or "legacy"
+     * @return the profile, or the "wal" profile if the name is not recognized
+     */
+    public static StorageProfile named(String name) {
+
+        if ("legacy".equalsIgnoreCase(name)) {
+            return new StorageProfile("legacy", "DELETE", "FULL", 0, -2000, 3000, 4);
+        }
+
+        return new StorageProfile("wal", "WAL", "NORMAL", 256L * 1024 * 1024, -16000, 5000, 8);
+    }
+
+    /* NON-STATIC */
+    private final String name;
+    private String journalMode;
+    private String synchronous;
+    private long mmapSize;
+    private int cacheSize;
+    private int busyTimeoutMillis;
+    private int readers;
+
+    /**
+     * Creates a storage profile
+     *
+     * @param name the profile's name, for logging
+     * @param journalMode the journal_mode PRAGMA (ie: "WAL")
+     * @param synchronous the synchronous PRAGMA (ie: "NORMAL")
+     * @param mmapSize the mmap_size PRAGMA in bytes (0 disables memory mapping)
+     * @param cacheSize the cache_size PRAGMA (negative values are KiB, positive values are pages)
+     * @param busyTimeoutMillis the busy_timeout PRAGMA
+     * @param readers the number of pooled read-only connections
+     */
+    public StorageProfile(String name, String journalMode, String synchronous, long mmapSize,
+                          int cacheSize, int busyTimeoutMillis, int readers) {
+        this.name = name;
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.mmapSize = mmapSize;
+        this.cacheSize = cacheSize;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+        this.readers = readers;
+    }
+
+    /**
+     * Returns the driver properties for a new connection
+     *
+     * @param readOnly true to open the database read-only
+     * @return the connection properties
+     */
+    Properties getConnectionProperties(boolean readOnly) {
+        Properties properties = new Properties();
+
+        if (readOnly) {
+            properties.setProperty("open_mode", OPEN_READ_ONLY);
+        }
+
+        return properties;
+    }
+
+    /**
+     * Applies the profile's PRAGMAs to a newly opened connection
+     *
+     * @param connection the new connection
+     * @param readOnly true if the connection will only be used for reads
+     * @throws SQLException if a PRAGMA fails
+     */
+    void apply(Connection connection, boolean readOnly) throws SQLException {
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = 1");
+            }
+            else {
+                // journal_mode is stored in the database file, so only the writer sets it
+                stmt.execute("PRAGMA journal_mode = " + journalMode);
+            }
+
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getJournalMode() {
+        return journalMode;
+    }
+
+    public void setJournalMode(String journalMode) {
+        this.journalMode = keyword(journalMode);
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public void setSynchronous(String synchronous) {
+        this.synchronous = keyword(synchronous);
+    }
+
+    public long getMmapSize() {
+        return mmapSize;
+    }
+
+    public void setMmapSize(long mmapSize) {
+        this.mmapSize = mmapSize;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getBusyTimeoutMillis() {
+        return busyTimeoutMillis;
+    }
+
+    public void setBusyTimeoutMillis(int busyTimeoutMillis) {
+        this.busyTimeoutMillis = busyTimeoutMillis;
+    }
+
+    public int getReaders() {
+        return readers;
+    }
+
+    public void setReaders(int readers) {
+        this.readers = readers;
+    }
+
+    /**
+     * PRAGMA values are written into the statement, so only accept plain keywords
+     */
+    private static String keyword(String value) {
+
+        if (value == null || !value.matches("[A-Za-z]+")) {
+            throw new IllegalArgumentException("Invalid PRAGMA value: " + value);
+        }
+
+        return value.toUpperCase();
+    }
+
+    @Override
+    public String toString() {
+        return name + " (journal_mode=" + journalMode + ", synchronous=" + synchronous +
+                ", mmap_size=" + mmapSize + ", cache_size=" + cacheSize + ", busy_timeout=" +
+                busyTimeoutMillis + ", readers=" + readers + ")";
+    }
+}
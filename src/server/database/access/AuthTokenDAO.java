@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import server.database.DatabaseError;
+import server.database.StatementCache;
 import server.database.model.AuthToken;
 
 /**
@@ -12,6 +13,8 @@ import server.database.model.AuthToken;
  */
 public class AuthTokenDAO extends DAO {
 
+    private static final String TABLE = "AuthTokens";
+
     private static final String createStmt =
                 "CREATE TABLE AuthTokens (\n" +
                     "\tvalue TEXT NOT NULL PRIMARY KEY UNIQUE,\n" +
@@ -40,9 +43,10 @@ public class AuthTokenDAO extends DAO {
      * Manages all AuthToken database operations
      *
      * @param connection an open database connection
+     * @param statements the connection's prepared statement cache
      */
-    public AuthTokenDAO(Connection connection) {
-        super(connection);
+    public AuthTokenDAO(Connection connection, StatementCache statements) {
+        super(connection, statements);
     }
 
     /**
@@ -54,6 +58,25 @@ public class AuthTokenDAO extends DAO {
         super.createTable(createStmt, dropStmt);
     }
 
+    /**
+     * Deletes every row from the AuthTokens table, keeping its indexes
+     *
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public void clearTable() throws DatabaseError {
+        clearTable(TABLE);
+    }
+
+    /**
+     * Checks whether the AuthTokens table exists
+     *
+     * @return true if the table exists
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public boolean tableExists() throws DatabaseError {
+        return tableExists(TABLE);
+    }
+
     /**
      * Selects an active AuthToken from the database by token value
      *
@@ -65,14 +88,16 @@ public class AuthTokenDAO extends DAO {
         assert connection != null : "null connection";
         AuthToken output;
 
-        try (PreparedStatement stmt = connection.prepareStatement(tokenByValueQuery)) {
+        try {
+            PreparedStatement stmt = prepare(tokenByValueQuery);
             assert tokenValue != null : "null token value";
             stmt.setString(1, tokenValue);
 
-            ResultSet rs = stmt.executeQuery();
-            String uid = rs.getString(1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                String uid = rs.getString(1);
 
-            output = new AuthToken(tokenValue, uid);
+                output = new AuthToken(tokenValue, uid);
+            }
         }
         catch (SQLException e) {
             throw new DatabaseError("Authtoken select failed: " + e.getMessage());
@@ -92,18 +117,19 @@ public class AuthTokenDAO extends DAO {
         ArrayList<AuthToken> output;
         assert connection != null : "null connection";
 
-        try (PreparedStatement stmt = connection.prepareStatement(tokensByUserQuery)) {
-
+        try {
+            PreparedStatement stmt = prepare(tokensByUserQuery);
             assert uid != null : "null uid";
             stmt.setString(1, uid);
-            ResultSet rs = stmt.executeQuery();
 
             output = new ArrayList<>();
 
-            while (rs.next()) {
-                String value = rs.getString(1);
-                AuthToken token = new AuthToken(value, uid);
-                output.add(token);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String value = rs.getString(1);
+                    AuthToken token = new AuthToken(value, uid);
+                    output.add(token);
+                }
             }
         }
         catch (SQLException e) {
@@ -122,7 +148,8 @@ public class AuthTokenDAO extends DAO {
     public void insertToken(AuthToken token) throws DatabaseError {
         assert connection != null : "null connection";
 
-        try (PreparedStatement stmt = connection.prepareStatement(insert)) {
+        try {
+            PreparedStatement stmt = prepare(insert);
             assert token != null : "null token";
             stmt.setString(1, token.getValue());
             stmt.setString(2, token.getUid());
@@ -1,10 +1,12 @@
 package server.database.access;
 
 import java.sql.*;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import server.database.DatabaseError;
+import server.database.StatementCache;
 
 /**
  * Abstract class for DAOs to inherit from
@@ -17,16 +19,92 @@ abstract class DAO {
         logger = Logger.getLogger("famServer");
     }
 
+    private static final String tableExistsQuery =
+                "SELECT name\n" +
+                    "FROM sqlite_master\n" +
+                    "WHERE type = 'table' AND name = ?;";
+
     Connection connection;
+    private StatementCache statements;
 
     /**
      * Loads the database connection
      *
      * @param connection an open database connection
+     * @param statements the connection's prepared statement cache
      */
-    DAO(Connection connection) {
+    DAO(Connection connection, StatementCache statements) {
         assert connection != null : "null connection";
+        assert statements != null : "null statement cache";
         this.connection = connection;
+        this.statements = statements;
+    }
+
+    /**
+     * Returns the connection's cached prepared statement for a query. The statement is shared,
+     *  so callers must not close it (but should close its ResultSets).
+     *
+     * @param sql the statement's sql
+     * @return the prepared statement
+     * @throws SQLException if the statement cannot be prepared
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        return statements.prepare(sql);
+    }
+
+    /**
+     * Inserts (or updates) rows with JDBC batches, executing one batch per [batchSize] rows.
+     *  Every row must change exactly one row of the table.
+     *
+     * @param sql the insert (or single row update) statement
+     * @param rows the rows to insert
+     * @param batchSize the number of rows per batch
+     * @param binder sets a row's values on the statement
+     * @throws SQLException if a batch fails
+     * @throws DatabaseError if a row was not inserted
+     */
+    <T> void insertBatch(String sql, List<T> rows, int batchSize, Binder<T> binder)
+            throws SQLException, DatabaseError {
+        assert batchSize > 0 : "invalid batchSize";
+        PreparedStatement stmt = prepare(sql);
+        int pending = 0;
+
+        try {
+            for (T row : rows) {
+                binder.bind(stmt, row);
+                stmt.addBatch();
+
+                if (++pending == batchSize) {
+                    checkBatch(stmt.executeBatch());
+                    pending = 0;
+                }
+            }
+
+            if (pending > 0) {
+                checkBatch(stmt.executeBatch());
+            }
+        }
+        finally {
+            // the statement is cached, so never leave a failed batch behind on it
+            stmt.clearBatch();
+        }
+    }
+
+    private void checkBatch(int[] results) throws DatabaseError {
+
+        for (int result : results) {
+            if (result != 1 && result != Statement.SUCCESS_NO_INFO) {
+                throw new DatabaseError("batch insert failed to execute");
+            }
+        }
+    }
+
+    /**
+     * Sets one row's values on an insert statement
+     */
+    interface Binder<T> {
+
+        void bind(PreparedStatement stmt, T row) throws SQLException;
     }
 
     /**
@@ -51,4 +129,47 @@ abstract class DAO {
             throw new DatabaseError("CreateTable failed:" + e.getMessage());
         }
     }
+
+    /**
+     * Deletes every row from a table, keeping the table and its indexes
+     *
+     * @param table the table's name
+     * @throws DatabaseError if there is any issue
+     */
+    void clearTable(String table) throws DatabaseError {
+        assert connection != null : "null connection";
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM " + table);
+            logger.info("ClearTable " + table + " succeeded");
+        }
+        catch (SQLException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new DatabaseError("ClearTable failed:" + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether a table exists in the database
+     *
+     * @param table the table's name
+     * @return true if the table exists
+     * @throws DatabaseError if there is any issue
+     */
+    boolean tableExists(String table) throws DatabaseError {
+        assert connection != null : "null connection";
+
+        try {
+            PreparedStatement stmt = prepare(tableExistsQuery);
+            stmt.setString(1, table);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+        catch (SQLException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+            throw new DatabaseError("TableExists failed:" + e.getMessage());
+        }
+    }
 }
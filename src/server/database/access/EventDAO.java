@@ -7,6 +7,7 @@ import java.util.logging.Level;
 
 import server.database.Database;
 import server.database.DatabaseError;
+import server.database.StatementCache;
 import server.database.model.Event;
 
 /**
@@ -16,6 +17,8 @@ public class EventDAO extends DAO {
 
     private Database db;
 
+    private static final String TABLE = "Events";
+
     private static final String createStmt =
                 "CREATE TABLE Events (\n" +
                     "\teid TEXT NOT NULL PRIMARY KEY UNIQUE,\n" +
@@ -48,6 +51,16 @@ public class EventDAO extends DAO {
                 "INSERT INTO Events\n" +
                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);";
 
+    private static final String assignDescendants =
+                "UPDATE Events\n" +
+                    "SET descendant = (SELECT descendant FROM Persons WHERE Persons.pid = Events.pid)\n" +
+                    "WHERE EXISTS (SELECT 1 FROM Persons WHERE Persons.pid = Events.pid);";
+
+    private static final String countWithoutPerson =
+                "SELECT COUNT(*)\n" +
+                    "FROM Events\n" +
+                    "WHERE NOT EXISTS (SELECT 1 FROM Persons WHERE Persons.pid = Events.pid);";
+
     private static final String deleteEvents =
                 "DELETE FROM Events\n" +
                     "WHERE descendant = ?;";
@@ -57,9 +70,10 @@ public class EventDAO extends DAO {
      * Handles all Event interactions with the database
      *
      * @param connection an open database connection
+     * @param statements the connection's prepared statement cache
      */
-    public EventDAO(Connection connection) {
-        super(connection);
+    public EventDAO(Connection connection, StatementCache statements) {
+        super(connection, statements);
     }
 
     /**
@@ -71,6 +85,25 @@ public class EventDAO extends DAO {
         createTable(createStmt, dropStmt);
     }
 
+    /**
+     * Deletes every row from the Events table, keeping its indexes
+     *
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public void clearTable() throws DatabaseError {
+        clearTable(TABLE);
+    }
+
+    /**
+     * Checks whether the Events table exists
+     *
+     * @return true if the table exists
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public boolean tableExists() throws DatabaseError {
+        return tableExists(TABLE);
+    }
+
     /**
      * Selects an Event by event id
      *
@@ -84,21 +117,23 @@ public class EventDAO extends DAO {
         logger.info("Getting event: " + eid);
         Event output;
 
-        try (PreparedStatement stmt = connection.prepareStatement(eventQuery)) {
+        try {
+            PreparedStatement stmt = prepare(eventQuery);
             stmt.setString(1, eid);
-            ResultSet rs = stmt.executeQuery();
-
-            String eventId = rs.getString(1);
-            String pid = rs.getString(2);
-            String descendant = rs.getString(3);
-            String event_type = rs.getString(4);
-            double latitude = rs.getDouble(5);
-            double longitude = rs.getDouble(6);
-            String country = rs.getString(7);
-            String city = rs.getString(8);
-            String year = rs.getString(9);
-
-            output = new Event(eventId, pid, descendant, event_type, latitude, longitude, country, city, year);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                String eventId = rs.getString(1);
+                String pid = rs.getString(2);
+                String descendant = rs.getString(3);
+                String event_type = rs.getString(4);
+                double latitude = rs.getDouble(5);
+                double longitude = rs.getDouble(6);
+                String country = rs.getString(7);
+                String city = rs.getString(8);
+                String year = rs.getString(9);
+
+                output = new Event(eventId, pid, descendant, event_type, latitude, longitude, country, city, year);
+            }
         }
         catch (SQLException e) {
             throw new DatabaseError("Event select failed " + e.getMessage());
@@ -118,29 +153,30 @@ public class EventDAO extends DAO {
         assert connection != null : "null connection";
         ArrayList<Event> output;
 
-        try (PreparedStatement stmt = connection.prepareStatement(eventsQuery)) {
+        try {
+            PreparedStatement stmt = prepare(eventsQuery);
             assert descendant != null : "null descendant";
             stmt.setString(1, descendant);
 
-            ResultSet rs = stmt.executeQuery();
             output = new ArrayList<>();
 
-            while(rs.next()) {
-                String eid = rs.getString(1);
-                String pid = rs.getString(2);
-                rs.getString(3);
-                String event_type = rs.getString(4);
-                double latitude = rs.getDouble(5);
-                double longitude = rs.getDouble(6);
-                String country = rs.getString(7);
-                String city = rs.getString(8);
-                String year = rs.getString(9);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while(rs.next()) {
+                    String eid = rs.getString(1);
+                    String pid = rs.getString(2);
+                    rs.getString(3);
+                    String event_type = rs.getString(4);
+                    double latitude = rs.getDouble(5);
+                    double longitude = rs.getDouble(6);
+                    String country = rs.getString(7);
+                    String city = rs.getString(8);
+                    String year = rs.getString(9);
 
-                Event event = new Event(eid, pid, descendant, event_type, latitude, longitude, country,
-                        city, year);
-                output.add(event);
+                    Event event = new Event(eid, pid, descendant, event_type, latitude, longitude, country,
+                            city, year);
+                    output.add(event);
+                }
             }
-
         }
         catch (SQLException e) {
             throw new DatabaseError("Event select failed: " + e.getMessage());
@@ -158,17 +194,10 @@ public class EventDAO extends DAO {
     public void insert(Event event) throws DatabaseError {
         assert connection != null : "null connection";
 
-        try (PreparedStatement stmt = connection.prepareStatement(insert)) {
+        try {
+            PreparedStatement stmt = prepare(insert);
             assert event != null : "null event";
-            stmt.setString(1, event.getEventID());
-            stmt.setString(2, event.getPersonID());
-            stmt.setString(3, event.getDescendant());
-            stmt.setString(4, event.getEventType());
-            stmt.setDouble(5, event.getLatitude());
-            stmt.setDouble(6, event.getLongitude());
-            stmt.setString(7, event.getCountry());
-            stmt.setString(8, event.getCity());
-            stmt.setString(9, event.getYear());
+            bind(stmt, event);
 
             if (stmt.executeUpdate() != 1) {
                 throw new DatabaseError("insertEvent failed to execute");
@@ -179,6 +208,77 @@ public class EventDAO extends DAO {
         }
     }
 
+    /**
+     * Inserts a list of Event objects into the database using JDBC batches
+     *
+     * @param events the Event objects to insert
+     * @param batchSize the number of rows sent per batch
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public void insertAll(List<Event> events, int batchSize) throws DatabaseError {
+        assert connection != null : "null connection";
+        assert events != null : "null events";
+        logger.info("Inserting " + events.size() + " events");
+
+        try {
+            insertBatch(insert, events, batchSize, EventDAO::bind);
+            logger.info(events.size() + " events inserted successfully");
+        }
+        catch (SQLException e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+            throw new DatabaseError("insertAll failed");
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, Event event) throws SQLException {
+        stmt.setString(1, event.getEventID());
+        stmt.setString(2, event.getPersonID());
+        stmt.setString(3, event.getDescendant());
+        stmt.setString(4, event.getEventType());
+        stmt.setDouble(5, event.getLatitude());
+        stmt.setDouble(6, event.getLongitude());
+        stmt.setString(7, event.getCountry());
+        stmt.setString(8, event.getCity());
+        stmt.setString(9, event.getYear());
+    }
+
+    /**
+     * Sets every event's descendant to the descendant of the person it belongs to (events whose
+     *  person is not in the database keep their descendant)
+     *
+     * @return the number of events updated
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public int assignDescendants() throws DatabaseError {
+        assert connection != null : "null connection";
+
+        try {
+            return prepare(assignDescendants).executeUpdate();
+        }
+        catch (SQLException e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+            throw new DatabaseError("assignDescendants failed");
+        }
+    }
+
+    /**
+     * Counts the events whose person is not in the database
+     *
+     * @return the number of events without a person
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public int countWithoutPerson() throws DatabaseError {
+        assert connection != null : "null connection";
+
+        try (ResultSet rs = prepare(countWithoutPerson).executeQuery()) {
+            return rs.getInt(1);
+        }
+        catch (SQLException e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+            throw new DatabaseError("countWithoutPerson failed");
+        }
+    }
+
     /**
      * Deletes all Events from the database associated with a given Person
      *
@@ -190,7 +290,8 @@ public class EventDAO extends DAO {
         logger.info("Deleting all events for " + username);
         assert connection != null : "null connection";
 
-        try (PreparedStatement stmt = connection.prepareStatement(deleteEvents)) {
+        try {
+            PreparedStatement stmt = prepare(deleteEvents);
             stmt.setString(1, username);
             stmt.execute();
         } catch (SQLException e) {
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.logging.Level;
 
 import server.database.DatabaseError;
+import server.database.StatementCache;
 import server.database.model.Person;
 import server.database.model.User;
 
@@ -15,6 +16,8 @@ import server.database.model.User;
  */
 public class PersonDAO extends DAO {
 
+    private static final String TABLE = "Persons";
+
     private static final String createTable =
                 "CREATE TABLE Persons (\n" +
                     "\tpid TEXT NOT NULL PRIMARY KEY UNIQUE,\n" +
@@ -60,9 +63,10 @@ public class PersonDAO extends DAO {
      * Manages all database operations for the Persons table
      *
      * @param connection an open database connection
+     * @param statements the connection's prepared statement cache
      */
-    public PersonDAO(Connection connection) {
-        super(connection);
+    public PersonDAO(Connection connection, StatementCache statements) {
+        super(connection, statements);
     }
 
     /**
@@ -74,6 +78,25 @@ public class PersonDAO extends DAO {
         createTable(createTable, dropTable);
     }
 
+    /**
+     * Deletes every row from the Persons table, keeping its indexes
+     *
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public void clearTable() throws DatabaseError {
+        clearTable(TABLE);
+    }
+
+    /**
+     * Checks whether the Persons table exists
+     *
+     * @return true if the table exists
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public boolean tableExists() throws DatabaseError {
+        return tableExists(TABLE);
+    }
+
     /**
      * Selects a Person by id
      *
@@ -87,22 +110,24 @@ public class PersonDAO extends DAO {
 
         assert connection != null;
 
-        try (PreparedStatement stmt = connection.prepareStatement(personByIdQuery)) {
+        try {
+            PreparedStatement stmt = prepare(personByIdQuery);
             stmt.setString(1, pid);
-            ResultSet rs = stmt.executeQuery();
-
-            String personID = rs.getString(1);
-            String descendant = rs.getString(2);
-            String firstName = rs.getString(3);
-            String lastName = rs.getString(4);
-            String gender = rs.getString(5);
-            String fatherID = rs.getString(6);
-            String motherID = rs.getString(7);
-            String spouseID = rs.getString(8);
-
-            logger.info("Person retrieved successfully");
-            return new Person(personID, descendant, firstName, lastName, gender, fatherID, motherID,
-                              spouseID);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                String personID = rs.getString(1);
+                String descendant = rs.getString(2);
+                String firstName = rs.getString(3);
+                String lastName = rs.getString(4);
+                String gender = rs.getString(5);
+                String fatherID = rs.getString(6);
+                String motherID = rs.getString(7);
+                String spouseID = rs.getString(8);
+
+                logger.info("Person retrieved successfully");
+                return new Person(personID, descendant, firstName, lastName, gender, fatherID, motherID,
+                                  spouseID);
+            }
         }
         catch (SQLException e) {
             logger.log(Level.WARNING, e.getMessage(), e);
@@ -123,24 +148,26 @@ public class PersonDAO extends DAO {
 
         assert connection != null;
 
-        try (PreparedStatement stmt = connection.prepareStatement(personsByDescendantQuery)) {
+        try {
+            PreparedStatement stmt = prepare(personsByDescendantQuery);
             stmt.setString(1, descendant);
-            ResultSet rs = stmt.executeQuery();
 
             List<Person> persons = new ArrayList<>();
 
-            while (rs.next()){
-                String personID = rs.getString(1);
-                String username = rs.getString(2);
-                String firstName = rs.getString(3);
-                String lastName = rs.getString(4);
-                String gender = rs.getString(5);
-                String fatherID = rs.getString(6);
-                String motherID = rs.getString(7);
-                String spouseID = rs.getString(8);
-
-                persons.add(new Person(personID, username, firstName, lastName, gender, fatherID, motherID,
-                        spouseID));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()){
+                    String personID = rs.getString(1);
+                    String username = rs.getString(2);
+                    String firstName = rs.getString(3);
+                    String lastName = rs.getString(4);
+                    String gender = rs.getString(5);
+                    String fatherID = rs.getString(6);
+                    String motherID = rs.getString(7);
+                    String spouseID = rs.getString(8);
+
+                    persons.add(new Person(personID, username, firstName, lastName, gender, fatherID, motherID,
+                            spouseID));
+                }
             }
 
             logger.info("Persons retrieved successfully");
@@ -164,15 +191,9 @@ public class PersonDAO extends DAO {
 
         assert connection != null : "null connection";
 
-        try (PreparedStatement stmt = connection.prepareStatement(insert)) {
-            stmt.setString(1, person.getPersonID());
-            stmt.setString(2, person.getDescendant());
-            stmt.setString(3, person.getFirstName());
-            stmt.setString(4, person.getLastName());
-            stmt.setString(5, person.getGender());
-            stmt.setString(6, person.getFather());
-            stmt.setString(7, person.getMother());
-            stmt.setString(8, person.getSpouse());
+        try {
+            PreparedStatement stmt = prepare(insert);
+            bind(stmt, person);
 
             if (stmt.executeUpdate() != 1) {
                 throw new DatabaseError("insert failed to execute");
@@ -186,6 +207,39 @@ public class PersonDAO extends DAO {
         }
     }
 
+    /**
+     * Inserts a list of Person objects into the database using JDBC batches
+     *
+     * @param persons the Person objects to insert
+     * @param batchSize the number of rows sent per batch
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public void insertAll(List<Person> persons, int batchSize) throws DatabaseError {
+        assert connection != null : "null connection";
+        assert persons != null : "null persons";
+        logger.info("Inserting " + persons.size() + " persons");
+
+        try {
+            insertBatch(insert, persons, batchSize, PersonDAO::bind);
+            logger.info(persons.size() + " persons inserted successfully");
+        }
+        catch (SQLException e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+            throw new DatabaseError("insertAll failed");
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, Person person) throws SQLException {
+        stmt.setString(1, person.getPersonID());
+        stmt.setString(2, person.getDescendant());
+        stmt.setString(3, person.getFirstName());
+        stmt.setString(4, person.getLastName());
+        stmt.setString(5, person.getGender());
+        stmt.setString(6, person.getFather());
+        stmt.setString(7, person.getMother());
+        stmt.setString(8, person.getSpouse());
+    }
+
     /**
      * Deletes all people from the database for a given user
      *
@@ -197,7 +251,8 @@ public class PersonDAO extends DAO {
         assert user != null : "null descendant";
         logger.info("Deleting all Persons for: " + user.getUserName());
 
-        try (PreparedStatement stmt = connection.prepareStatement(delete)) {
+        try {
+            PreparedStatement stmt = prepare(delete);
             stmt.setString(1, user.getUserName());
             stmt.setString(2, user.getPersonID());
             stmt.execute();
@@ -219,7 +274,8 @@ public class PersonDAO extends DAO {
         assert person != null;
         logger.info("Updating IDs " + person.getFirstName() + " " + person.getLastName());
 
-        try (PreparedStatement stmt = connection.prepareStatement(update)) {
+        try {
+            PreparedStatement stmt = prepare(update);
             stmt.setString(1, person.getFather());
             stmt.setString(2, person.getMother());
             stmt.setString(3, person.getSpouse());
@@ -239,4 +295,30 @@ public class PersonDAO extends DAO {
             throw new DatabaseError("update failed");
         }
     }
+
+    /**
+     * Updates the ids of a list of Persons using JDBC batches
+     *
+     * @param persons the persons to update (with correct ids stored)
+     * @param batchSize the number of rows sent per batch
+     * @throws DatabaseError if any person was not updated
+     */
+    public void updateAllIDs(List<Person> persons, int batchSize) throws DatabaseError {
+        assert connection != null : "null connection";
+        assert persons != null : "null persons";
+        logger.info("Updating IDs of " + persons.size() + " persons");
+
+        try {
+            insertBatch(update, persons, batchSize, (stmt, person) -> {
+                stmt.setString(1, person.getFather());
+                stmt.setString(2, person.getMother());
+                stmt.setString(3, person.getSpouse());
+                stmt.setString(4, person.getPersonID());
+            });
+        }
+        catch (SQLException e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+            throw new DatabaseError("updateAllIDs failed");
+        }
+    }
 }
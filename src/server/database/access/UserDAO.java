@@ -1,9 +1,11 @@
 package server.database.access;
 
 import java.sql.*;
+import java.util.List;
 import java.util.logging.Level;
 
 import server.database.DatabaseError;
+import server.database.StatementCache;
 import server.database.model.User;
 
 /**
@@ -11,6 +13,8 @@ import server.database.model.User;
  */
 public class UserDAO extends DAO {
 
+    private static final String TABLE = "Users";
+
     private static final String createStmt =
                 "CREATE TABLE Users (\n" +
                     "\tuid TEXT NOT NULL PRIMARY KEY UNIQUE,\n" +
@@ -46,10 +50,11 @@ public class UserDAO extends DAO {
     /**
      * Manages all database operations for users
      *
-     * @param connection
+     * @param connection an open database connection
+     * @param statements the connection's prepared statement cache
      */
-    public UserDAO(Connection connection) {
-        super(connection);
+    public UserDAO(Connection connection, StatementCache statements) {
+        super(connection, statements);
     }
 
     /**
@@ -61,6 +66,25 @@ public class UserDAO extends DAO {
         createTable(createStmt, dropStmt);
     }
 
+    /**
+     * Deletes every row from the Users table, keeping its indexes
+     *
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public void clearTable() throws DatabaseError {
+        clearTable(TABLE);
+    }
+
+    /**
+     * Checks whether the Users table exists
+     *
+     * @return true if the table exists
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public boolean tableExists() throws DatabaseError {
+        return tableExists(TABLE);
+    }
+
     /**
      * Selects a User from the database by username
      *
@@ -77,17 +101,18 @@ public class UserDAO extends DAO {
         assert connection != null : "null connection";
         User output;
 
-        try (PreparedStatement stmt = connection.prepareStatement(loginQuery)) {
+        try {
+            PreparedStatement stmt = prepare(loginQuery);
             stmt.setString(1, username);
             stmt.setString(2, password);
 
-            ResultSet rs = stmt.executeQuery();
-
-            String uid = rs.getString(1);
-            String pid = rs.getString(2);
-            String email = rs.getString(3);
+            try (ResultSet rs = stmt.executeQuery()) {
+                String uid = rs.getString(1);
+                String pid = rs.getString(2);
+                String email = rs.getString(3);
 
-            output = new User(uid, pid, username, password, email);
+                output = new User(uid, pid, username, password, email);
+            }
         }
         catch (SQLException e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
@@ -109,17 +134,19 @@ public class UserDAO extends DAO {
 
         assert connection != null : "null connection";
 
-        try (PreparedStatement stmt = connection.prepareStatement(userIdQuery)) {
+        try {
+            PreparedStatement stmt = prepare(userIdQuery);
             stmt.setString(1, uid);
-            ResultSet rs = stmt.executeQuery();
 
-            String pid = rs.getString(1);
-            String username = rs.getString(2);
-            String password = rs.getString(3);
-            String email = rs.getString(4);
+            try (ResultSet rs = stmt.executeQuery()) {
+                String pid = rs.getString(1);
+                String username = rs.getString(2);
+                String password = rs.getString(3);
+                String email = rs.getString(4);
 
-            logger.info("User " + uid + " retrieved successfully");
-            return new User(uid, pid, username, password, email);
+                logger.info("User " + uid + " retrieved successfully");
+                return new User(uid, pid, username, password, email);
+            }
         }
         catch (SQLException e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
@@ -133,17 +160,19 @@ public class UserDAO extends DAO {
 
         assert connection != null : "null connection";
 
-        try (PreparedStatement stmt = connection.prepareStatement(usernameQuery)) {
+        try {
+            PreparedStatement stmt = prepare(usernameQuery);
             stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
 
-            String uid = rs.getString(1);
-            String pid = rs.getString(2);
-            String password = rs.getString(3);
-            String email = rs.getString(4);
+            try (ResultSet rs = stmt.executeQuery()) {
+                String uid = rs.getString(1);
+                String pid = rs.getString(2);
+                String password = rs.getString(3);
+                String email = rs.getString(4);
 
-            logger.info("User " + username + " retrieved successfully");
-            return new User(uid, pid, username, password, email);
+                logger.info("User " + username + " retrieved successfully");
+                return new User(uid, pid, username, password, email);
+            }
         }
         catch (SQLException e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
@@ -162,13 +191,9 @@ public class UserDAO extends DAO {
         assert user != null : "null user";
         logger.info("Inserting user: " + user.getUserName());
 
-        try (PreparedStatement stmt = connection.prepareStatement(insert)) {
-
-            stmt.setString(1, user.getUid());
-            stmt.setString(2, user.getPersonID());
-            stmt.setString(3, user.getUserName());
-            stmt.setString(4, user.getPassword());
-            stmt.setString(5, user.getEmail());
+        try {
+            PreparedStatement stmt = prepare(insert);
+            bind(stmt, user);
 
             if (stmt.executeUpdate() != 1) {
                 throw new DatabaseError("insertUser failed to execute");
@@ -182,4 +207,33 @@ public class UserDAO extends DAO {
         }
     }
 
+    /**
+     * Inserts a list of User objects into the database using JDBC batches
+     *
+     * @param users the User objects to insert
+     * @param batchSize the number of rows sent per batch
+     * @throws DatabaseError if there is any problem performing the query
+     */
+    public void insertAll(List<User> users, int batchSize) throws DatabaseError {
+        assert connection != null : "null connection";
+        assert users != null : "null users";
+        logger.info("Inserting " + users.size() + " users");
+
+        try {
+            insertBatch(insert, users, batchSize, UserDAO::bind);
+            logger.info(users.size() + " users inserted successfully");
+        }
+        catch (SQLException e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+            throw new DatabaseError("insertAll failed");
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, User user) throws SQLException {
+        stmt.setString(1, user.getUid());
+        stmt.setString(2, user.getPersonID());
+        stmt.setString(3, user.getUserName());
+        stmt.setString(4, user.getPassword());
+        stmt.setString(5, user.getEmail());
+    }
 }
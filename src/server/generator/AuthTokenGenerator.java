@@ -9,7 +9,7 @@ import server.database.model.User;
 public class AuthTokenGenerator extends DataGenerator {
 
     /**
-     * Generates a random AuthToken for a user
+     * Generates a random AuthToken for a user. Token values come from a secure random source.
      *
      * @param user the user to generate a token for
      * @return the AuthToken
@@ -18,6 +18,6 @@ public class AuthTokenGenerator extends DataGenerator {
         assert user != null : "null user";
         logger.info("Generating token for " + user.getUid());
 
-        return new AuthToken(uniqueId(), user.getUid());
+        return new AuthToken(IdStrategy.TOKENS.nextId(), user.getUid());
     }
 }
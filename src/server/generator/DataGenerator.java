@@ -1,7 +1,6 @@
 package server.generator;
 
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Logger;
 
 /**
@@ -20,12 +19,43 @@ abstract class DataGenerator {
 
 
     /* NON-STATIC */
+    private final SplittableRandom random;
+    private final boolean seeded;
+
+    DataGenerator() {
+        this(new SplittableRandom(), false);
+    }
+
+    /**
+     * @param random the random source for this generator, which must only be used by one thread
+     * @param seeded true if the random source was given a seed, in which case IDs are also drawn
+     *  from it so the generated data is reproducible
+     */
+    DataGenerator(SplittableRandom random, boolean seeded) {
+        this.random = random;
+        this.seeded = seeded;
+    }
+
     int randNum(int min, int max) {
-        return ThreadLocalRandom.current().nextInt(min, max + 1);
+        return random.nextInt(min, max + 1);
+    }
+
+    SplittableRandom getRandom() {
+        return random;
+    }
+
+    boolean isSeeded() {
+        return seeded;
     }
 
     String uniqueId() {
-        return UUID.randomUUID().toString();
+
+        if (seeded) {
+            // A ULID with a zero timestamp, so it only depends on the seed
+            return MonotonicIdStrategy.format(0, random.nextLong(), random.nextLong());
+        }
+
+        return IdStrategy.RECORDS.nextId();
     }
 
 }
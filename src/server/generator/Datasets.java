@@ -0,0 +1,226 @@
+package server.generator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import server.generator.model.Location;
+import server.generator.model.LocationList;
+import server.generator.model.NameList;
+import server.json.JsonDecoder;
+
+/**
+ * The name and location lists the generators draw from, loaded once from the json/ directory into
+ *  plain arrays. A loaded Datasets is never modified, so every generator thread shares the same
+ *  one; reloading (if enabled) swaps in a new instance when any of the files change.
+ */
+public final class Datasets {
+
+    /* STATIC */
+    private static final Path MALE_NAMES = Paths.get("json/mnames.json");
+    private static final Path FEMALE_NAMES = Paths.get("json/fnames.json");
+    private static final Path SURNAMES = Paths.get("json/snames.json");
+    private static final Path LOCATIONS = Paths.get("json/locations.json");
+    private static final Path[] FILES = {MALE_NAMES, FEMALE_NAMES, SURNAMES, LOCATIONS};
+
+    private static Logger logger;
+    private static volatile Datasets current;
+    private static ScheduledExecutorService reloader;
+
+    static {
+        logger = Logger.getLogger("famServer");
+    }
+
+    /**
+     * Loads the datasets and, if reloadIntervalMillis is positive, starts checking the files for
+     *  changes at that interval
+     *
+     * @param reloadIntervalMillis how often to check for changed files (0 disables reloading)
+     * @throws IOException if a dataset cannot be read
+     */
+    public static synchronized void initialize(long reloadIntervalMillis) throws IOException {
+        current = load();
+
+        if (reloadIntervalMillis > 0 && reloader == null) {
+            reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "dataset-reloader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloader.scheduleWithFixedDelay(Datasets::reloadIfChanged, reloadIntervalMillis,
+                    reloadIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the current datasets, loading them on first use if initialize() was never called
+     *
+     * @return the current datasets
+     */
+    static Datasets get() {
+        Datasets datasets = current;
+
+        if (datasets == null) {
+            synchronized (Datasets.class) {
+                if (current == null) {
+                    try {
+                        current = load();
+                    }
+                    catch (IOException e) {
+                        logger.log(Level.SEVERE, e.getMessage(), e);
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                datasets = current;
+            }
+        }
+
+        return datasets;
+    }
+
+    private static Datasets load() throws IOException {
+        long[] modified = lastModified();
+        Datasets datasets = new Datasets(readNames(MALE_NAMES), readNames(FEMALE_NAMES),
+                readNames(SURNAMES), readLocations(LOCATIONS), modified);
+
+        logger.info("Loaded datasets: " + datasets.maleNames.length + " male names, " +
+                datasets.femaleNames.length + " female names, " + datasets.surnames.length +
+                " surnames, " + datasets.countries.length + " locations");
+        return datasets;
+    }
+
+    private static void reloadIfChanged() {
+
+        try {
+            long[] modified = lastModified();
+
+            if (!Arrays.equals(modified, current.modified)) {
+                logger.info("Dataset files changed, reloading");
+                current = load();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            // Keep generating from the last good datasets
+            logger.log(Level.WARNING, "Could not reload datasets: " + e.getMessage(), e);
+        }
+    }
+
+    private static long[] lastModified() throws IOException {
+        long[] modified = new long[FILES.length];
+
+        for (int i = 0; i < FILES.length; i++) {
+            modified[i] = Files.getLastModifiedTime(FILES[i]).toMillis();
+        }
+
+        return modified;
+    }
+
+    private static String[] readNames(Path path) throws IOException {
+        String json = new String(Files.readAllBytes(path));
+        NameList nameList = (NameList)new JsonDecoder().decode(json, new NameList());
+
+        if (nameList == null || nameList.data == null || nameList.data.isEmpty()) {
+            throw new IOException("No names in " + path);
+        }
+
+        return nameList.data.toArray(new String[0]);
+    }
+
+    private static List<Location> readLocations(Path path) throws IOException {
+        String json = new String(Files.readAllBytes(path));
+        LocationList locationList = (LocationList)new JsonDecoder().decode(json, new LocationList());
+
+        if (locationList == null || locationList.data == null || locationList.data.isEmpty()) {
+            throw new IOException("No locations in " + path);
+        }
+
+        return locationList.data;
+    }
+
+    /* NON-STATIC */
+    private final String[] maleNames;
+    private final String[] femaleNames;
+    private final String[] surnames;
+
+    // Locations are stored column by column
+    private final String[] countries;
+    private final String[] cities;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    private final long[] modified;
+
+    private Datasets(String[] maleNames, String[] femaleNames, String[] surnames,
+                     List<Location> locations, long[] modified) {
+        this.maleNames = maleNames;
+        this.femaleNames = femaleNames;
+        this.surnames = surnames;
+        this.modified = modified;
+
+        int count = locations.size();
+        countries = new String[count];
+        cities = new String[count];
+        latitudes = new double[count];
+        longitudes = new double[count];
+
+        for (int i = 0; i < count; i++) {
+            Location location = locations.get(i);
+            countries[i] = location.country;
+            cities[i] = location.city;
+            latitudes[i] = location.latitude;
+            longitudes[i] = location.longitude;
+        }
+    }
+
+    /**
+     * Returns a first name from the list for a gender
+     *
+     * @param gender "f" or "m"
+     * @param index a random number, at least 0 and less than getFirstNameCount(gender)
+     * @return the first name
+     */
+    String getFirstName(String gender, int index) {
+        return "f".equals(gender) ? femaleNames[index] : maleNames[index];
+    }
+
+    int getFirstNameCount(String gender) {
+        return "f".equals(gender) ? femaleNames.length : maleNames.length;
+    }
+
+    String getSurname(int index) {
+        return surnames[index];
+    }
+
+    int getSurnameCount() {
+        return surnames.length;
+    }
+
+    String getCountry(int location) {
+        return countries[location];
+    }
+
+    String getCity(int location) {
+        return cities[location];
+    }
+
+    double getLatitude(int location) {
+        return latitudes[location];
+    }
+
+    double getLongitude(int location) {
+        return longitudes[location];
+    }
+
+    int getLocationCount() {
+        return countries.length;
+    }
+}
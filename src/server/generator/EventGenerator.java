@@ -2,23 +2,20 @@ package server.generator;
 
 import server.database.model.Person;
 import server.database.model.Event;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
-import java.util.logging.Level;
 
 import server.database.model.*;
-import server.generator.model.Location;
-import server.generator.model.LocationList;
-import server.json.JsonDecoder;
 
 /**
  * Generates random events
  */
 public class EventGenerator extends DataGenerator{
 
-    private final static String PATH_TO_JSON_LOCATIONS = "json/locations.json";
+    public EventGenerator() {}
+
+    EventGenerator(SplittableRandom random, boolean seeded) {
+        super(random, seeded);
+    }
 
     /**
      * Returns a complete set of random events for one person
@@ -28,7 +25,6 @@ public class EventGenerator extends DataGenerator{
      * @return a complete set of random events for one person
      */
     public List<Event> getRandomEvents(Person person, int generation) {
-        logger.info("getRandomEvents for " + person.getFirstName() + " " + person.getLastName());
         List<Event> output = new ArrayList<>();
 
         int birthYear = getBirthYear(generation);
@@ -51,18 +47,18 @@ public class EventGenerator extends DataGenerator{
             output.add(getRandomEvent(person, eventType, year));
         }
 
-        logger.info("Exiting getRandomEvents");
         return output;
     }
 
     private Event getRandomEvent(Person person, String eventType, int year) {
         String eventID = uniqueId();
         String personID = person.getPersonID();
-        Location location = getRandomLocation();
-        Event output = new Event(eventID, personID, person.getDescendant(), eventType, location.latitude,
-                                 location.longitude, location.country, location.city, "" + year);
+        Datasets datasets = Datasets.get();
+        int location = randNum(0, datasets.getLocationCount() - 1);
+        Event output = new Event(eventID, personID, person.getDescendant(), eventType,
+                                 datasets.getLatitude(location), datasets.getLongitude(location),
+                                 datasets.getCountry(location), datasets.getCity(location), "" + year);
 
-        logger.info("Creating " + eventType + " event for " + person.getFirstName() + " " + person.getLastName());
         return output;
     }
 
@@ -102,22 +98,4 @@ public class EventGenerator extends DataGenerator{
             return "Census Record";
         }
     }
-
-    private Location getRandomLocation() {
-        String jsonLocations;
-
-        try {
-            jsonLocations = new String(Files.readAllBytes(Paths.get(PATH_TO_JSON_LOCATIONS)));
-        }
-        catch (IOException e) {
-            logger.log(Level.SEVERE, e.getMessage(), e);
-            return null;
-        }
-
-        JsonDecoder decoder = new JsonDecoder();
-        LocationList locationList = (LocationList)decoder.decode(jsonLocations, new LocationList());
-        int randomIndex = randNum(0, locationList.data.size() - 1);
-
-        return locationList.data.get(randomIndex);
-    }
 }
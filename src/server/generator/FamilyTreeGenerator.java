@@ -4,7 +4,19 @@ import server.database.model.Person;
 import server.database.model.Event;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
+import server.ServerConfig;
 import server.database.model.*;
 
 /**
@@ -12,13 +24,55 @@ import server.database.model.*;
  */
 public class FamilyTreeGenerator extends DataGenerator{
 
+    /* STATIC */
+    /**
+     * Subtrees with fewer generations than this are generated by the task that reaches them
+     *  instead of being split further (a 4 generation subtree has 30 persons)
+     */
+    private static final int FORK_GENERATIONS = 4;
+
+    private static final long POLL_MILLIS = 100;
+
+    private static final int PARALLEL_GENERATIONS =
+            ServerConfig.getInt(ServerConfig.FILL_PARALLEL_GENERATIONS, 6);
+
+    private static final ForkJoinPool pool = new ForkJoinPool(
+            ServerConfig.getInt(ServerConfig.FILL_PARALLELISM, Runtime.getRuntime().availableProcessors()),
+            forkJoinPool -> {
+                ForkJoinWorkerThread thread =
+                        ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("tree-generator-" + thread.getPoolIndex());
+                return thread;
+            },
+            null, false);
+
+    /* NON-STATIC */
     private List<Person> personList;
     private List<Event> eventList;
+    private int personCount;
+    private int eventCount;
     private int generations;
+    private int generationOffset;
+
+    /**
+     * Creates a generator that produces a different tree every time
+     */
+    public FamilyTreeGenerator() {}
+
+    /**
+     * Creates a generator whose trees, including their IDs, depend only on the seed (and on the
+     *  name and location datasets), even when they are generated in parallel
+     *
+     * @param seed the random seed
+     */
+    public FamilyTreeGenerator(long seed) {
+        super(new SplittableRandom(seed), true);
+    }
 
 
     /**
-     * Represents a family personList of randomly generated people
+     * Represents a family personList of randomly generated people. Trees of at least
+     *  famserver.fill.parallelGenerations generations are generated in parallel.
      *
      * @param descendant the root person
      * @param generations the number of generations to generate
@@ -26,64 +80,416 @@ public class FamilyTreeGenerator extends DataGenerator{
     public Person generateTree(Person descendant, int generations) {
         logger.info("Entering FamilyTreeGenerator for " + descendant.getDescendant());
 
-        this.generations = generations;
-        personList = new ArrayList<>();
-        eventList = new ArrayList<>();
+        Branch tree = new Branch(getRandom(), null);
 
-        addSpouse(descendant);
-        fillGenerations(descendant, generations);
+        addSpouse(tree, descendant);
+        generateAncestors(tree, descendant, generations, 0);
 
-        logger.info("Finished generating persons and events");
+        logger.info("Finished generating " + personCount + " persons and " + eventCount + " events");
         return descendant;
     }
 
-    private void addSpouse(Person descendant) {
-        PersonGenerator pGen = new PersonGenerator();
+    /**
+     * Generates new generations of ancestors above a person already in a tree (without a spouse
+     *  for the person, who is assumed to have one). The results replace getPersonList() and
+     *  getEventList().
+     *
+     * @param root the person to generate ancestors for, whose father and mother are set
+     * @param generations the number of generations to generate
+     * @param generationOffset the number of generations between root and the user, used to date
+     *  the new ancestors' events
+     */
+    public void extendTree(Person root, int generations, int generationOffset) {
+        generateAncestors(new Branch(getRandom(), null), root, generations, generationOffset);
+    }
+
+    private void generateAncestors(Branch tree, Person root, int generations, int generationOffset) {
+        this.generations = generations;
+        this.generationOffset = generationOffset;
+
+        if (generations >= PARALLEL_GENERATIONS) {
+            tree.append(pool.invoke(new BranchTask(root, generations, getRandom().split(), null)));
+        }
+        else {
+            tree.fill(root, generations);
+        }
+
+        personList = tree.persons;
+        eventList = tree.events;
+        personCount = personList.size();
+        eventCount = eventList.size();
+    }
+
+    /**
+     * Generates a family tree without holding all of it in memory. The tree is generated on the
+     *  generator pool and handed, in batches of about batchSize persons or events, to a consumer
+     *  running on the calling thread. Generation pauses while maxQueuedBatches batches are waiting
+     *  for the consumer, so memory use does not grow with the number of generations.
+     *
+     * The descendant's father, mother and spouse are set once every batch has been consumed.
+     *  getPersonList() and getEventList() return null afterwards; use the counts instead.
+     *
+     * @param descendant the root person
+     * @param generations the number of generations to generate
+     * @param batchSize the number of persons or events to collect before handing them over
+     * @param maxQueuedBatches the number of batches that may wait for the consumer
+     * @param consumer stores each batch, returning false to stop generation
+     * @return true if every batch was generated and consumed
+     */
+    public boolean streamTree(Person descendant, int generations, int batchSize, int maxQueuedBatches,
+                              BatchConsumer consumer) {
+        logger.info("Streaming " + generations + " generations for " + descendant.getDescendant());
+
+        this.generations = generations;
+        this.generationOffset = 0;
+        personList = null;
+        eventList = null;
+        personCount = 0;
+        eventCount = 0;
+
+        Stream stream = new Stream(batchSize, maxQueuedBatches);
+        SplittableRandom random = getRandom().split();
+        SplittableRandom spouseRandom = getRandom().split();
+
+        ForkJoinTask<Branch> producer = pool.submit(
+                new StreamTask(descendant, generations, random, spouseRandom, stream));
+
+        try {
+            Batch batch;
+
+            while ((batch = stream.queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) != null ||
+                    !producer.isDone() || !stream.queue.isEmpty()) {
+
+                if (batch == null) {
+                    continue;
+                }
+
+                if (!consumer.accept(batch.persons, batch.events)) {
+                    stop(stream, producer);
+                    return false;
+                }
+
+                personCount += batch.persons.size();
+                eventCount += batch.events.size();
+            }
+
+            producer.get();
+            logger.info("Finished streaming " + personCount + " persons and " + eventCount + " events");
+            return true;
+        }
+        catch (InterruptedException e) {
+            stop(stream, producer);
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException | RuntimeException e) {
+            stop(stream, producer);
+            logger.log(Level.SEVERE, "Tree generation failed: " + e.getMessage(), e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Cancels a streamed tree and waits for its generator tasks to finish, so none of them is
+     *  still touching the tree's persons when streamTree() returns
+     */
+    private void stop(Stream stream, ForkJoinTask<Branch> producer) {
+        stream.cancelled = true;
+        producer.quietlyJoin();
+    }
+
+    private void addSpouse(Branch tree, Person descendant) {
         String gender = "m";
 
         if (descendant.getGender().equals("m")) { // sets gender to the opposite of the primary user
             gender = "f";
         }
 
-        Person spouse = pGen.getRandomPerson(descendant.getDescendant(), gender);
+        Person spouse = tree.pGen.getRandomPerson(descendant.getDescendant(), gender);
 
         descendant.setSpouse(spouse.getPersonID());  // cross assign spouse ids
         spouse.setSpouse(descendant.getPersonID());
-        personList.add(spouse);
+        tree.persons.add(spouse);
     }
 
-    private void fillGenerations(Person root, int gensRemaining) {
+    public List<Person> getPersonList() {
+       return personList;
+    }
+
+    public List<Event> getEventList() {
+        return eventList;
+    }
 
-        if (gensRemaining == 0) {  // return case
-            return;
+    public int getPersonCount() {
+        return personCount;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Receives the batches of a streamed tree
+     */
+    public interface BatchConsumer {
+
+        /**
+         * @param persons a batch of generated persons
+         * @param events a batch of generated events
+         * @return false to stop generating the tree
+         */
+        boolean accept(List<Person> persons, List<Event> events);
+    }
+
+    /**
+     * The batches waiting between the generator tasks and the consumer of a streamed tree
+     */
+    private static class Stream {
+
+        final int batchSize;
+        final BlockingQueue<Batch> queue;
+        volatile boolean cancelled;
+
+        Stream(int batchSize, int maxQueuedBatches) {
+            this.batchSize = batchSize;
+            queue = new ArrayBlockingQueue<>(maxQueuedBatches);
+        }
+
+        /**
+         * Waits for room in the queue, so generation can only run ahead of the consumer by
+         *  maxQueuedBatches batches. The wait is a managed block, so the generator pool can start
+         *  another thread and a slow consumer does not hold up other fills.
+         *
+         * @throws CancellationException if the consumer stopped
+         */
+        void put(Batch batch) {
+            Offer offer = new Offer(batch);
+
+            try {
+                ForkJoinPool.managedBlock(offer);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted");
+            }
+
+            if (!offer.offered) {
+                throw new CancellationException("Tree consumer stopped");
+            }
         }
 
-        PersonGenerator pGen = new PersonGenerator();
-        EventGenerator eGen = new EventGenerator();
+        /**
+         * Offers a batch to the queue until it is taken or the consumer stops
+         */
+        private class Offer implements ForkJoinPool.ManagedBlocker {
 
-        Person father = pGen.getRandomPerson(root.getDescendant(), "m", root.getLastName());
-        eventList.addAll(eGen.getRandomEvents(father, generations - gensRemaining));
-        personList.add(father);
+            final Batch batch;
+            boolean offered;
 
-        Person mother = pGen.getRandomPerson(root.getDescendant(), "f");
-        eventList.addAll(eGen.getRandomEvents(mother, generations - gensRemaining));
-        personList.add(mother);
+            Offer(Batch batch) {
+                this.batch = batch;
+            }
 
-        root.setFather(father.getPersonID());  // cross assign ids
-        root.setMother(mother.getPersonID());
-        father.setSpouse(mother.getPersonID());
-        mother.setSpouse(father.getPersonID());
+            @Override
+            public boolean block() throws InterruptedException {
 
-        fillGenerations(father, gensRemaining - 1);  // recursive
-        fillGenerations(mother, gensRemaining - 1);
+                while (!offered && !cancelled) {
+                    offered = queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return offered || cancelled || (offered = queue.offer(batch));
+            }
+        }
     }
 
-    public List<Person> getPersonList() {
-       return personList;
+    private static class Batch {
+
+        final List<Person> persons;
+        final List<Event> events;
+
+        Batch(List<Person> persons, List<Event> events) {
+            this.persons = persons;
+            this.events = events;
+        }
     }
 
-    public List<Event> getEventList() {
-        return eventList;
+    /**
+     * The persons and events of one part of the tree, generated by a single thread from its own
+     *  random source. When streaming, a branch hands its persons and events to the stream once
+     *  both of its subtrees have joined and it holds a full batch, so a person is never handed
+     *  over before its father and mother are set.
+     */
+    private class Branch {
+
+        List<Person> persons = new ArrayList<>();
+        List<Event> events = new ArrayList<>();
+        final PersonGenerator pGen;
+        final EventGenerator eGen;
+        final Stream stream;
+
+        Branch(SplittableRandom random, Stream stream) {
+            pGen = new PersonGenerator(random, isSeeded());
+            eGen = new EventGenerator(random, isSeeded());
+            this.stream = stream;
+        }
+
+        /**
+         * Generates [gensRemaining] generations of ancestors for root
+         */
+        void fill(Person root, int gensRemaining) {
+
+            if (gensRemaining == 0) {  // return case
+                return;
+            }
+
+            Person[] parents = addParents(root, gensRemaining);
+
+            fill(parents[0], gensRemaining - 1);  // recursive
+            fill(parents[1], gensRemaining - 1);
+        }
+
+        /**
+         * Generates root's father and mother, with their events
+         *
+         * @return {father, mother}
+         */
+        Person[] addParents(Person root, int gensRemaining) {
+            int generation = generationOffset + generations - gensRemaining;
+
+            Person father = pGen.getRandomPerson(root.getDescendant(), "m", root.getLastName());
+            events.addAll(eGen.getRandomEvents(father, generation));
+            persons.add(father);
+
+            Person mother = pGen.getRandomPerson(root.getDescendant(), "f");
+            events.addAll(eGen.getRandomEvents(mother, generation));
+            persons.add(mother);
+
+            root.setFather(father.getPersonID());  // cross assign ids
+            root.setMother(mother.getPersonID());
+            father.setSpouse(mother.getPersonID());
+            mother.setSpouse(father.getPersonID());
+
+            return new Person[] {father, mother};
+        }
+
+        /**
+         * Adds a finished subtree to this branch. When streaming, every person in the branch must
+         *  be complete (their parents generated) by the time this is called, since a full branch is
+         *  handed over here.
+         */
+        void append(Branch other) {
+            persons.addAll(other.persons);
+            events.addAll(other.events);
+            flushIfFull();
+        }
+
+        void flushIfFull() {
+
+            if (stream != null &&
+                    (persons.size() >= stream.batchSize || events.size() >= stream.batchSize)) {
+                flush();
+            }
+        }
+
+        /**
+         * Hands everything in the branch to the stream
+         */
+        void flush() {
+
+            if (!persons.isEmpty() || !events.isEmpty()) {
+                stream.put(new Batch(persons, events));
+                persons = new ArrayList<>();
+                events = new ArrayList<>();
+            }
+        }
+    }
+
+    /**
+     * Generates a streamed tree: the descendant's spouse, then every generation of ancestors,
+     *  handing the last partial batch over at the end
+     */
+    private class StreamTask extends RecursiveTask<Branch> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Person descendant;
+        private final int generations;
+        private final SplittableRandom random;
+        private final SplittableRandom spouseRandom;
+        private final Stream stream;
+
+        StreamTask(Person descendant, int generations, SplittableRandom random,
+                   SplittableRandom spouseRandom, Stream stream) {
+            this.descendant = descendant;
+            this.generations = generations;
+            this.random = random;
+            this.spouseRandom = spouseRandom;
+            this.stream = stream;
+        }
+
+        @Override
+        protected Branch compute() {
+            Branch tree = new Branch(spouseRandom, stream);
+            addSpouse(tree, descendant);
+            tree.append(new BranchTask(descendant, generations, random, stream).compute());
+            tree.flush();
+            return tree;
+        }
     }
 
+    /**
+     * Generates the ancestors of one person, forking the father's and mother's subtrees while
+     *  they are large enough to be worth splitting. Every task has its own random source, split
+     *  from its parent's before it is forked, so tasks never share one.
+     */
+    private class BranchTask extends RecursiveTask<Branch> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Person root;
+        private final int gensRemaining;
+        private final SplittableRandom random;
+        private final Stream stream;
+
+        BranchTask(Person root, int gensRemaining, SplittableRandom random, Stream stream) {
+            this.root = root;
+            this.gensRemaining = gensRemaining;
+            this.random = random;
+            this.stream = stream;
+        }
+
+        @Override
+        protected Branch compute() {
+
+            if (stream != null && stream.cancelled) {
+                throw new CancellationException("Tree consumer stopped");
+            }
+
+            Branch branch = new Branch(random, stream);
+
+            if (gensRemaining < FORK_GENERATIONS) {
+                branch.fill(root, gensRemaining);
+                return branch;
+            }
+
+            Person[] parents = branch.addParents(root, gensRemaining);
+            BranchTask fatherTask = new BranchTask(parents[0], gensRemaining - 1, random.split(), stream);
+            BranchTask motherTask = new BranchTask(parents[1], gensRemaining - 1, random.split(), stream);
+
+            motherTask.fork();
+            Branch father = fatherTask.compute();
+            Branch mother = motherTask.join();
+
+            // Same order as fill(): parents, then the father's ancestors, then the mother's (when
+            //  streaming, most of each subtree has already been handed over)
+            branch.append(father);
+            branch.append(mother);
+            return branch;
+        }
+    }
 }
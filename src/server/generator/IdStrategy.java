@@ -0,0 +1,43 @@
+package server.generator;
+
+import java.util.UUID;
+
+import server.ServerConfig;
+
+/**
+ * Creates unique IDs for new records
+ */
+public interface IdStrategy {
+
+    /**
+     * IDs for persons, events and users, chosen by famserver.ids ("ulid" or "uuid")
+     */
+    IdStrategy RECORDS = named(ServerConfig.getString(ServerConfig.ID_STRATEGY, "ulid"));
+
+    /**
+     * IDs that must not be guessable (ie: auth tokens)
+     */
+    IdStrategy TOKENS = new SecureIdStrategy();
+
+    /**
+     * Returns a new ID, different from every ID returned before
+     *
+     * @return the new ID
+     */
+    String nextId();
+
+    /**
+     * Returns a strategy by name
+     *
+     * @param name "uuid" for random UUIDs, or "ulid" for time-ordered IDs
+     * @return the strategy, or the "ulid" strategy if the name is not recognized
+     */
+    static IdStrategy named(String name) {
+
+        if ("uuid".equalsIgnoreCase(name)) {
+            return () -> UUID.randomUUID().toString();
+        }
+
+        return new MonotonicIdStrategy();
+    }
+}
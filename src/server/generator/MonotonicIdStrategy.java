@@ -0,0 +1,77 @@
+package server.generator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Creates ULIDs: 26 character IDs made of a 48 bit millisecond timestamp and 80 random bits,
+ *  written in Crockford's base 32. IDs sort in the order they were created, so new rows are
+ *  appended to the end of the primary key index instead of being scattered across it.
+ *
+ * Each thread keeps its own state; IDs created by one thread in the same millisecond increment the
+ *  random part, so they stay in order. Nothing is shared, so threads never contend.
+ */
+public class MonotonicIdStrategy implements IdStrategy {
+
+    /* STATIC */
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LENGTH = 26;
+    private static final int TIME_LENGTH = 10;
+    private static final long HIGH_MASK = 0xFFFFL;
+
+    /**
+     * Writes a ULID
+     *
+     * @param timeMillis the timestamp (only the low 48 bits are used)
+     * @param randomHigh the high 16 random bits
+     * @param randomLow the low 64 random bits
+     * @return the ULID
+     */
+    static String format(long timeMillis, long randomHigh, long randomLow) {
+        char[] chars = new char[LENGTH];
+        long high = randomHigh & HIGH_MASK;
+        long low = randomLow;
+
+        // 80 random bits, 5 at a time from the right
+        for (int i = LENGTH - 1; i >= TIME_LENGTH; i--) {
+            chars[i] = ALPHABET[(int)(low & 31)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+
+        for (int i = TIME_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int)(timeMillis & 31)];
+            timeMillis >>>= 5;
+        }
+
+        return new String(chars);
+    }
+
+    /* NON-STATIC */
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    @Override
+    public String nextId() {
+        State current = state.get();
+        long now = System.currentTimeMillis();
+
+        if (now > current.lastMillis) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            current.lastMillis = now;
+            current.high = random.nextLong() & HIGH_MASK;
+            current.low = random.nextLong();
+        }
+        else if (++current.low == 0) {
+            // Same millisecond (or the clock moved back): count up from the last ID
+            current.high = (current.high + 1) & HIGH_MASK;
+        }
+
+        return format(current.lastMillis, current.high, current.low);
+    }
+
+    private static class State {
+
+        long lastMillis = -1;
+        long high;
+        long low;
+    }
+}
@@ -0,0 +1,36 @@
+package server.generator;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Creates unguessable IDs from 128 bits of SecureRandom output, written as 22 URL-safe base 64
+ *  characters. Threads are spread over several SecureRandom instances, so they do not all wait on
+ *  one lock.
+ */
+public class SecureIdStrategy implements IdStrategy {
+
+    /* STATIC */
+    private static final int BYTES = 16;
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+    /* NON-STATIC */
+    private final SecureRandom[] sources;
+
+    public SecureIdStrategy() {
+        sources = new SecureRandom[Math.max(2, Runtime.getRuntime().availableProcessors() * 2)];
+
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = new SecureRandom();
+        }
+    }
+
+    @Override
+    public String nextId() {
+        byte[] bytes = new byte[BYTES];
+        int stripe = (int)((Thread.currentThread().getId() & Integer.MAX_VALUE) % sources.length);
+
+        sources[stripe].nextBytes(bytes);
+        return encoder.encodeToString(bytes);
+    }
+}
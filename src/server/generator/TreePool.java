@@ -0,0 +1,194 @@
+package server.generator;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import server.database.model.Event;
+import server.database.model.Person;
+import server.metrics.Metrics;
+
+/**
+ * Keeps a few family trees generated ahead of time for each gender, so registration only has to
+ *  insert one. Pooled trees are generated for a placeholder user by a background thread; take()
+ *  hands one to a real user and starts generating its replacement.
+ */
+public final class TreePool {
+
+    /* STATIC */
+    private static final String PLACEHOLDER_USER = "";
+    private static final String PLACEHOLDER_SURNAME = "\u0000";
+    private static final String PLACEHOLDER_PID = "\u0000";
+    private static final String[] GENDERS = {"m", "f"};
+
+    private static Logger logger;
+    private static final TreePool instance = new TreePool();
+
+    static {
+        logger = Logger.getLogger("famServer");
+    }
+
+    public static TreePool getInstance() {
+        return instance;
+    }
+
+    /* NON-STATIC */
+    private volatile BlockingQueue<Tree> male;
+    private volatile BlockingQueue<Tree> female;
+    private int generations;
+    private ExecutorService refiller;
+    private final AtomicBoolean refillPending = new AtomicBoolean();
+
+    private final LongAdder hits = Metrics.counter("treePool.hits");
+    private final LongAdder misses = Metrics.counter("treePool.misses");
+
+    private TreePool() {
+        Metrics.gauge("treePool.ready.m", () -> male == null ? 0 : male.size());
+        Metrics.gauge("treePool.ready.f", () -> female == null ? 0 : female.size());
+    }
+
+    /**
+     * Starts filling the pool in the background. A size of 0 leaves the pool disabled, so take()
+     *  always returns null.
+     *
+     * @param size the number of trees to keep ready for each gender
+     * @param generations the number of generations in each tree
+     */
+    public synchronized void start(int size, int generations) {
+
+        if (size <= 0 || refiller != null) {
+            return;
+        }
+
+        this.generations = generations;
+        male = new ArrayBlockingQueue<>(size);
+        female = new ArrayBlockingQueue<>(size);
+
+        refiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tree-pool-refill");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        logger.info("Tree pool: " + size + " trees of " + generations + " generations per gender");
+        requestRefill();
+    }
+
+    /**
+     * Takes a ready tree and gives it to a user
+     *
+     * @param descendant the user's person, whose father, mother and spouse are set to the tree's
+     * @param generations the number of generations wanted
+     * @return the tree's persons and events (not including the descendant), or null if no tree
+     *  of that size is ready
+     */
+    public Tree take(Person descendant, int generations) {
+        BlockingQueue<Tree> queue = "f".equals(descendant.getGender()) ? female : male;
+
+        if (queue == null || generations != this.generations) {
+            return null;
+        }
+
+        Tree tree = queue.poll();
+        requestRefill();
+
+        if (tree == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        tree.assignTo(descendant);
+        return tree;
+    }
+
+    private void requestRefill() {
+
+        if (refillPending.compareAndSet(false, true)) {
+            refiller.execute(this::refill);
+        }
+    }
+
+    private void refill() {
+        refillPending.set(false);
+
+        try {
+            for (String gender : GENDERS) {
+                BlockingQueue<Tree> queue = gender.equals("f") ? female : male;
+
+                while (queue.remainingCapacity() > 0) {
+                    queue.offer(generate(gender));
+                }
+            }
+        }
+        catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not refill tree pool: " + e.getMessage(), e);
+        }
+    }
+
+    private Tree generate(String gender) {
+        Person root = new Person(PLACEHOLDER_PID, PLACEHOLDER_USER, "", PLACEHOLDER_SURNAME, gender);
+        FamilyTreeGenerator generator = new FamilyTreeGenerator();
+
+        generator.generateTree(root, generations);
+        return new Tree(root, generator.getPersonList(), generator.getEventList());
+    }
+
+    /**
+     * A generated tree, with its root's links
+     */
+    public static class Tree {
+
+        private final Person root;
+        private final List<Person> persons;
+        private final List<Event> events;
+
+        Tree(Person root, List<Person> persons, List<Event> events) {
+            this.root = root;
+            this.persons = persons;
+            this.events = events;
+        }
+
+        /**
+         * Moves the tree from the placeholder root to a user's person
+         */
+        private void assignTo(Person descendant) {
+            String username = descendant.getDescendant();
+
+            for (Person person : persons) {
+                person.setDescendant(username);
+
+                // The paternal line inherits the root's surname
+                if (PLACEHOLDER_SURNAME.equals(person.getLastName())) {
+                    person.setLastName(descendant.getLastName());
+                }
+                if (PLACEHOLDER_PID.equals(person.getSpouse())) {
+                    person.setSpouse(descendant.getPersonID());
+                }
+            }
+
+            for (Event event : events) {
+                event.setDescendant(username);
+            }
+
+            descendant.setFather(root.getFather());
+            descendant.setMother(root.getMother());
+            descendant.setSpouse(root.getSpouse());
+        }
+
+        public List<Person> getPersons() {
+            return persons;
+        }
+
+        public List<Event> getEvents() {
+            return events;
+        }
+    }
+}
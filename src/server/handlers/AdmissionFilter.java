@@ -0,0 +1,94 @@
+package server.handlers;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import server.concurrent.RequestGate;
+
+/**
+ * Admits exchanges through a RequestGate, answering "503 Service Unavailable" with a Retry-After
+ *  header when the gate's queue is full. Admitted exchanges run at the filter's thread priority.
+ */
+public class AdmissionFilter extends Filter {
+
+    /* STATIC */
+    private static final int HTTP_UNAVAILABLE = 503;
+    private static Logger logger;
+
+    static {
+        logger = Logger.getLogger("famServer");
+    }
+
+    /* NON-STATIC */
+    private final RequestGate gate;
+    private final int retryAfterSeconds;
+    private final int priority;
+
+    /**
+     * Admits exchanges through a RequestGate without changing the thread priority
+     *
+     * @param gate the gate that limits concurrent requests
+     * @param retryAfterSeconds the Retry-After value sent with rejected requests
+     */
+    public AdmissionFilter(RequestGate gate, int retryAfterSeconds) {
+        this(gate, retryAfterSeconds, 0);
+    }
+
+    /**
+     * Admits exchanges through a RequestGate, running them at the given thread priority (ignored
+     *  by virtual threads, which all run at normal priority)
+     *
+     * @param gate the gate that limits concurrent requests
+     * @param retryAfterSeconds the Retry-After value sent with rejected requests
+     * @param priority a Thread priority, or 0 to leave the priority unchanged
+     */
+    public AdmissionFilter(RequestGate gate, int retryAfterSeconds, int priority) {
+        assert gate != null : "null gate";
+        assert priority == 0 || (priority >= Thread.MIN_PRIORITY && priority <= Thread.MAX_PRIORITY);
+        this.gate = gate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.priority = priority;
+    }
+
+    @Override
+    public void doFilter(HttpExchange httpExchange, Chain chain) throws IOException {
+
+        if (!gate.enter()) {
+            logger.log(Level.WARNING, "Shedding request to " + httpExchange.getRequestURI() + ": " +
+                    gate.getName() + " queue is full");
+
+            httpExchange.getResponseHeaders().set("Retry-After", Integer.toString(retryAfterSeconds));
+            httpExchange.sendResponseHeaders(HTTP_UNAVAILABLE, -1);
+            httpExchange.close();
+            return;
+        }
+
+        Thread thread = Thread.currentThread();
+        int previousPriority = thread.getPriority();
+
+        try {
+            if (priority != 0) {
+                thread.setPriority(priority);
+            }
+
+            chain.doFilter(httpExchange);
+        }
+        finally {
+            thread.setPriority(previousPriority);
+            gate.exit();
+        }
+    }
+
+    public RequestGate getGate() {
+        return gate;
+    }
+
+    @Override
+    public String description() {
+        return "Admission control (" + gate.getName() + ")";
+    }
+}
@@ -0,0 +1,238 @@
+package server.handlers;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import server.ServerConfig;
+import server.metrics.Metrics;
+
+/**
+ * The response compressions the server offers, chosen from the request's Accept-Encoding header.
+ *  Bodies smaller than famserver.compression.minBytes are sent as they are, since compressing them
+ *  saves less than it costs.
+ */
+enum ContentEncoding {
+
+    IDENTITY(null),
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    /* STATIC */
+    static final boolean ENABLED = ServerConfig.getBoolean(ServerConfig.COMPRESSION_ENABLED, true);
+    static final int MIN_BYTES = ServerConfig.getInt(ServerConfig.COMPRESSION_MIN_BYTES, 1024);
+    static final int LEVEL = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION,
+            ServerConfig.getInt(ServerConfig.COMPRESSION_LEVEL, 6)));
+
+    private static final int BUFFER_BYTES = 8 * 1024;
+
+    private static final LongAdder responses = Metrics.counter("compression.responses");
+    private static final LongAdder bytesIn = Metrics.counter("compression.bytesIn");
+    private static final LongAdder bytesOut = Metrics.counter("compression.bytesOut");
+
+    static {
+        Metrics.gauge("compression.bytesSaved", () -> bytesIn.sum() - bytesOut.sum());
+    }
+
+    /**
+     * Picks the encoding for a response. gzip is preferred over deflate when the client accepts
+     *  both equally.
+     *
+     * @param httpExchange an httpExchange
+     * @return the best encoding the client accepts, or IDENTITY
+     */
+    static ContentEncoding negotiate(HttpExchange httpExchange) {
+        String accepted = httpExchange.getRequestHeaders().getFirst("Accept-Encoding");
+
+        if (!ENABLED || accepted == null) {
+            return IDENTITY;
+        }
+
+        ContentEncoding best = IDENTITY;
+        double bestQuality = 0;
+        double wildcard = -1;
+        double gzip = -1;
+        double deflate = -1;
+
+        for (String part : accepted.split(",")) {
+            String[] params = part.trim().split(";");
+            String coding = params[0].trim().toLowerCase();
+            double quality = quality(params);
+
+            switch (coding) {
+                case "gzip":
+                case "x-gzip":
+                    gzip = quality;
+                    break;
+                case "deflate":
+                    deflate = quality;
+                    break;
+                case "*":
+                    wildcard = quality;
+                    break;
+                default:
+            }
+        }
+
+        // Codings that are not listed fall back to the wildcard's quality
+        if (gzip < 0) {
+            gzip = wildcard;
+        }
+        if (deflate < 0) {
+            deflate = wildcard;
+        }
+
+        if (gzip > bestQuality) {
+            best = GZIP;
+            bestQuality = gzip;
+        }
+        if (deflate > bestQuality) {
+            best = DEFLATE;
+        }
+
+        return best;
+    }
+
+    private static double quality(String[] params) {
+
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                }
+                catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return 1;
+    }
+
+    /* NON-STATIC */
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Sets the response's Content-Encoding header, and gives the compressed representation its
+     *  own ETag (the caller must still send the headers)
+     *
+     * @param httpExchange an httpExchange whose response headers have not been sent
+     */
+    void setHeaders(HttpExchange httpExchange) {
+
+        if (token != null) {
+            Headers headers = httpExchange.getResponseHeaders();
+            headers.set("Content-Encoding", token);
+
+            String etag = headers.getFirst("ETag");
+
+            if (etag != null) {
+                headers.set("ETag", ETags.withEncoding(etag, token));
+            }
+        }
+    }
+
+    /**
+     * Wraps a stream so that everything written to it is compressed. Closing the returned stream
+     *  finishes the compressed data and closes [out].
+     *
+     * @param out where the compressed bytes are written
+     * @return the compressing stream, or [out] itself for IDENTITY
+     * @throws IOException if the compressed header cannot be written
+     */
+    OutputStream wrap(OutputStream out) throws IOException {
+
+        if (this == IDENTITY) {
+            return out;
+        }
+
+        responses.increment();
+        Counter counted = new Counter(out);
+
+        if (this == GZIP) {
+            return new GZIPOutputStream(counted, BUFFER_BYTES) {
+                {
+                    def.setLevel(LEVEL);
+                }
+
+                @Override
+                public void finish() throws IOException {
+                    super.finish();
+                    counted.record(def.getBytesRead());
+                }
+            };
+        }
+
+        Deflater deflater = new Deflater(LEVEL);
+
+        return new DeflaterOutputStream(counted, deflater, BUFFER_BYTES) {
+            @Override
+            public void finish() throws IOException {
+                super.finish();
+                counted.record(deflater.getBytesRead());
+            }
+
+            @Override
+            public void close() throws IOException {
+
+                try {
+                    super.close();
+                }
+                finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Counts the compressed bytes written through it
+     */
+    private static class Counter extends FilterOutputStream {
+
+        long count;
+        boolean recorded;
+
+        Counter(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        /**
+         * Adds the finished body's sizes to the compression metrics (once, however many times the
+         *  compressor is finished)
+         */
+        void record(long uncompressed) {
+
+            if (!recorded) {
+                recorded = true;
+                bytesIn.add(uncompressed);
+                bytesOut.add(count);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package server.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Builds and compares entity tags. A compressed response's tag carries its encoding
+ *  ("v-gzip"), so each representation has its own strong tag, but If-None-Match compares tags
+ *  without their encodings, so a client gets a 304 whichever representation it cached.
+ */
+final class ETags {
+
+    private static final String[] ENCODING_SUFFIXES = {"-gzip\"", "-deflate\""};
+
+    private ETags() {}
+
+    /**
+     * Returns the strong entity tag for a service's data tag
+     *
+     * @param tag the data tag (ie: from Service.getDataTag())
+     * @return the quoted tag
+     */
+    static String of(String tag) {
+        return "\"" + tag + "\"";
+    }
+
+    /**
+     * Returns the tag of a compressed representation
+     *
+     * @param etag a quoted tag
+     * @param coding the content coding (ie: "gzip")
+     * @return the quoted tag with the coding appended
+     */
+    static String withEncoding(String etag, String coding) {
+
+        if (etag.length() < 2 || !etag.endsWith("\"")) {
+            return etag;
+        }
+
+        return etag.substring(0, etag.length() - 1) + "-" + coding + "\"";
+    }
+
+    /**
+     * Finds the tag in the request's If-None-Match header that matches the resource's current tag
+     *
+     * @param httpExchange an httpExchange
+     * @param etag the current tag of the requested resource
+     * @return the client's matching tag (which may carry an encoding), so a 304 can repeat the tag
+     *  the client cached, or null if the client's copy is not current
+     */
+    static String match(HttpExchange httpExchange, String etag) {
+        String header = httpExchange.getRequestHeaders().getFirst("If-None-Match");
+
+        if (header == null) {
+            return null;
+        }
+
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+
+            if (candidate.equals("*")) {
+                return etag;
+            }
+
+            // If-None-Match uses the weak comparison
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+
+            if (withoutEncoding(candidate).equals(etag)) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    private static String withoutEncoding(String etag) {
+
+        for (String suffix : ENCODING_SUFFIXES) {
+            if (etag.endsWith(suffix)) {
+                return etag.substring(0, etag.length() - suffix.length()) + "\"";
+            }
+        }
+
+        return etag;
+    }
+}
@@ -3,8 +3,11 @@ package server.handlers;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
+import java.util.logging.Level;
 
+import server.services.FillJobService;
 import server.services.FillService;
+import server.services.Service;
 
 /**
  * Handles all "/fill" http requests
@@ -30,7 +33,36 @@ public class FillHandler extends Handler {
                     generations = uriParts[URI_PARAM_INDEX + 1];
                 }
 
-                FillService service = new FillService();
+                // "?mode=extend" adds generations to the existing tree instead of replacing it
+                boolean extend = "extend".equals(getQueryParameter(httpExchange, "mode"));
+                Service service;
+
+                // "?async=true" returns a job ID at once and fills in the background
+                if ("true".equals(getQueryParameter(httpExchange, "async"))) {
+                    FillJobService jobService = new FillJobService();
+                    jobService.setExtend(extend);
+                    service = jobService;
+                }
+                else {
+                    FillService fillService = new FillService();
+                    fillService.setExtend(extend);
+                    service = fillService;
+                }
+
+                String seed = getQueryParameter(httpExchange, "seed");
+
+                // Optional seed for reproducible data (ie: "/fill/user/8?seed=42")
+                if (seed != null) {
+                    try {
+                        service.setSeed(Long.parseLong(seed));
+                    }
+                    catch (NumberFormatException e) {
+                        logger.log(Level.WARNING, "Invalid seed: " + seed);
+                        sendBadRequestResponse(httpExchange);
+                        return;
+                    }
+                }
+
                 success = processRequest(httpExchange, service, null, username, generations);
             }
         }
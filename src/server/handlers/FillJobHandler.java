@@ -0,0 +1,36 @@
+package server.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+
+import server.services.FillJobStatusService;
+
+/**
+ * Handles all "/fill/jobs" requests
+ */
+public class FillJobHandler extends Handler {
+
+    @Override
+    public void handle(HttpExchange httpExchange) throws IOException {
+        logger.info("Entering FillJobHandler");
+        boolean success = false;
+
+        // Only allow GET requests
+        if (isGetRequest(httpExchange)) {
+            String[] uriParts = getUriParts(httpExchange);
+
+            // Requires the job ID ("/fill/jobs/{id}")
+            if (uriParts.length > URI_PARAM_INDEX + 1) {
+                String jobID = uriParts[URI_PARAM_INDEX + 1];
+                success = processRequest(httpExchange, new FillJobStatusService(), null, null, jobID);
+            }
+        }
+
+        if (!success) {
+            sendBadRequestResponse(httpExchange);
+        }
+
+        logger.info("Leaving FillJobHandler\n");
+    }
+}
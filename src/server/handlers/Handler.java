@@ -6,11 +6,12 @@ import com.sun.net.httpserver.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import server.json.JsonDecoder;
-import server.json.JsonEncoder;
+import server.metrics.Metrics;
 import server.services.Request;
 import server.services.Response;
 import server.services.*;
@@ -25,6 +26,7 @@ abstract class Handler implements HttpHandler {
      * The location where URI parameters start after calling getUriParts()
      */
     static final int URI_PARAM_INDEX = 2;
+    private static final LongAdder notModified = Metrics.counter("requests.notModified");
     static Logger logger;
 
     static {
@@ -84,9 +86,55 @@ abstract class Handler implements HttpHandler {
      *              uriParts[2-i]: parameters
      */
     String[] getUriParts(HttpExchange httpExchange) {
-        String uri = httpExchange.getRequestURI().toString();
-        logger.info("URI: " + uri);
-        return uri.split("/");
+        logger.info("URI: " + httpExchange.getRequestURI());
+        return httpExchange.getRequestURI().getPath().split("/");
+    }
+
+    /**
+     * Returns a parameter from the exchange's query string (ie: "seed" in "/fill/user?seed=7")
+     *
+     * @param httpExchange an httpExchange
+     * @param name the parameter's name
+     * @return the parameter's decoded value, or null if it is not present
+     */
+    String getQueryParameter(HttpExchange httpExchange, String name) {
+        String query = httpExchange.getRequestURI().getQuery();
+
+        if (query == null) {
+            return null;
+        }
+
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+
+            if (key.equals(name)) {
+                return equals < 0 ? "" : pair.substring(equals + 1);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the length of the request body from the Content-Length header
+     *
+     * @param httpExchange an httpExchange
+     * @return the body's length, or -1 if it is not known (ie: a chunked body)
+     */
+    long getContentLength(HttpExchange httpExchange) {
+        String length = httpExchange.getRequestHeaders().getFirst("Content-Length");
+
+        if (length == null) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(length.trim());
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     /**
@@ -118,19 +166,32 @@ abstract class Handler implements HttpHandler {
         logger.info("Processing request");
 
         try {
+            // Taken before the service reads the data, so a change committed during the read
+            //  gives the next request a different tag
+            String dataTag = user != null ? service.getDataTag(user) : null;
+            String etag = dataTag != null ? ETags.of(dataTag) : null;
+            String cachedTag = etag != null ? ETags.match(httpExchange, etag) : null;
+
+            if (cachedTag != null) {
+                sendNotModifiedResponse(httpExchange, cachedTag);
+                notModified.increment();
+                logger.info("Request not modified");
+                return true;
+            }
+
             Response response = service.getResponse(request, user, param);
 
             // Send response
-            httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
-            JsonEncoder encoder = new JsonEncoder();
-
             if (response != null) {
-                encoder.encodeToStream(response, httpExchange.getResponseBody());
-                httpExchange.getResponseBody().close();
+
+                if (etag != null) {
+                    setCacheHeaders(httpExchange, etag);
+                }
+
+                ResponseWriter.sendJson(httpExchange, HttpURLConnection.HTTP_OK, response);
             }
             else {
-                encoder.encodeToStream(service.getError(), httpExchange.getResponseBody());
-                httpExchange.getResponseBody().close();
+                ResponseWriter.sendJson(httpExchange, HttpURLConnection.HTTP_OK, service.getError());
             }
 
             logger.info("Request processed successfully");
@@ -138,10 +199,46 @@ abstract class Handler implements HttpHandler {
         }
         catch (IOException e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
-            httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, 0);
+
+            // A chunked response may have already sent its headers
+            if (httpExchange.getResponseCode() == -1) {
+                httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
+            }
+
             httpExchange.getResponseBody().close();
             return false;
         }
+        finally {
+            service.finish();
+        }
+    }
+
+    /**
+     * Tells the client its cached copy is current, without a body
+     *
+     * @param httpExchange an httpExchange
+     * @param etag the tag of the client's copy
+     * @throws IOException if the exchange is not successfully sent or closed
+     */
+    void sendNotModifiedResponse(HttpExchange httpExchange, String etag) throws IOException {
+        setCacheHeaders(httpExchange, etag);
+        httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+        httpExchange.close();
+    }
+
+    /**
+     * Lets clients cache a user's data, as long as they revalidate it with If-None-Match. The
+     *  response depends on the AuthToken, so a cache must not reuse it for another token.
+     */
+    private void setCacheHeaders(HttpExchange httpExchange, String etag) {
+        Headers headers = httpExchange.getResponseHeaders();
+        headers.set("ETag", etag);
+        headers.set("Cache-Control", "private, no-cache");
+        ResponseWriter.addVary(httpExchange, "Authorization");
+
+        if (ContentEncoding.ENABLED) {
+            ResponseWriter.addVary(httpExchange, "Accept-Encoding");
+        }
     }
 
     /**
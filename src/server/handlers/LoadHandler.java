@@ -1,7 +1,9 @@
 package server.handlers;
 
+import server.ServerConfig;
 import server.services.LoadRequest;
 import server.services.LoadService;
+import server.services.LoadStreamRequest;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
@@ -13,6 +15,9 @@ import server.services.Request;
  */
 public class LoadHandler extends Handler {
 
+    private static final long STREAM_THRESHOLD_BYTES =
+            ServerConfig.getLong(ServerConfig.LOAD_STREAM_THRESHOLD_BYTES, 1024 * 1024);
+
     @Override
     public void handle(HttpExchange httpExchange) throws IOException {
         logger.info("Entering LoadHandler");
@@ -20,9 +25,18 @@ public class LoadHandler extends Handler {
 
         // Only allow POST requests
         if (isPostRequest(httpExchange)) {
-            Request request = getRequestData(httpExchange, new LoadRequest());
-            success = processRequest(httpExchange, new LoadService(), request, null, null);
+            Request request;
 
+            // Large (or unknown length) bodies are loaded while they are read
+            if (getContentLength(httpExchange) < 0 ||
+                    getContentLength(httpExchange) > STREAM_THRESHOLD_BYTES) {
+                request = new LoadStreamRequest(httpExchange.getRequestBody());
+            }
+            else {
+                request = getRequestData(httpExchange, new LoadRequest());
+            }
+
+            success = processRequest(httpExchange, new LoadService(), request, null, null);
         }
 
         if (!success) {
@@ -0,0 +1,37 @@
+package server.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.logging.Logger;
+
+import server.metrics.Metrics;
+
+/**
+ * Handles all "/metrics" requests by returning a JSON snapshot of the server's metrics
+ */
+public class MetricsHandler implements HttpHandler {
+
+    private static Logger logger;
+
+    static {
+        logger = Logger.getLogger("famServer");
+    }
+
+    @Override
+    public void handle(HttpExchange httpExchange) throws IOException {
+        logger.info("Entering MetricsHandler");
+
+        if (httpExchange.getRequestMethod().equalsIgnoreCase("get")) {
+            ResponseWriter.sendJson(httpExchange, HttpURLConnection.HTTP_OK, Metrics.snapshot());
+        }
+        else {
+            httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1);
+        }
+
+        httpExchange.close();
+        logger.info("Exiting MetricsHandler\n");
+    }
+}
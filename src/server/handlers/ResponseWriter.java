@@ -0,0 +1,287 @@
+package server.handlers;
+
+import com.google.gson.JsonIOException;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+import server.ServerConfig;
+import server.json.JsonCodec;
+import server.metrics.Metrics;
+
+/**
+ * Writes a json response body. The body is serialized into a pooled buffer and sent with an exact
+ *  Content-Length in a single write. A body that outgrows the largest buffer is sent chunked
+ *  instead, through a large write buffer, so huge responses are never held in memory.
+ *
+ * Bodies are compressed when the client accepts gzip or deflate and the body is at least
+ *  famserver.compression.minBytes long.
+ */
+class ResponseWriter extends OutputStream {
+
+    /* STATIC */
+    private static final int INITIAL_BUFFER_BYTES = 16 * 1024;
+    private static final int CHUNK_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_BUFFER_BYTES = Math.max(INITIAL_BUFFER_BYTES,
+            ServerConfig.getInt(ServerConfig.RESPONSE_BUFFER_BYTES, 256 * 1024));
+    private static final int POOLED_BUFFERS =
+            ServerConfig.getInt(ServerConfig.RESPONSE_POOLED_BUFFERS, 16);
+
+    private static final LinkedBlockingDeque<byte[]> pool = new LinkedBlockingDeque<>(
+            Math.max(1, POOLED_BUFFERS));
+
+    private static final LongAdder fixed = Metrics.counter("response.fixed");
+    private static final LongAdder chunked = Metrics.counter("response.chunked");
+    private static final LongAdder bytes = Metrics.counter("response.bytes");
+
+    static {
+        Metrics.gauge("response.buffers.idle", pool::size);
+    }
+
+    /**
+     * Adds a request header to the response's Vary header, keeping any already listed
+     *
+     * @param httpExchange an httpExchange whose response headers have not been sent
+     * @param field the request header the response depends on (ie: "Authorization")
+     */
+    static void addVary(HttpExchange httpExchange, String field) {
+        Headers headers = httpExchange.getResponseHeaders();
+        String vary = headers.getFirst("Vary");
+
+        if (vary == null || vary.trim().isEmpty()) {
+            headers.set("Vary", field);
+            return;
+        }
+
+        for (String listed : vary.split(",")) {
+            if (listed.trim().equalsIgnoreCase(field)) {
+                return;
+            }
+        }
+
+        headers.set("Vary", vary + ", " + field);
+    }
+
+    /**
+     * Sends an object as a json response body, then closes the exchange's response body
+     *
+     * @param httpExchange an httpExchange whose response headers have not been sent
+     * @param status the HTTP status code
+     * @param body the object to encode
+     * @throws IOException if the response could not be sent
+     */
+    static void sendJson(HttpExchange httpExchange, int status, Object body) throws IOException {
+        httpExchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+
+        if (ContentEncoding.ENABLED) {
+            addVary(httpExchange, "Accept-Encoding");
+        }
+
+        ResponseWriter out = new ResponseWriter(httpExchange, status,
+                ContentEncoding.negotiate(httpExchange));
+
+        try {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            JsonCodec.getInstance().toJson(body, writer);
+            writer.flush();
+            out.finish();
+        }
+        catch (JsonIOException e) {
+            throw e.getCause() instanceof IOException ? (IOException)e.getCause() : new IOException(e);
+        }
+        finally {
+            out.release();
+        }
+    }
+
+    /* NON-STATIC */
+    private final HttpExchange httpExchange;
+    private final int status;
+    private final ContentEncoding encoding;
+    private byte[] buffer;
+    private int count;
+    private long streamed;
+    private OutputStream stream;
+
+    private ResponseWriter(HttpExchange httpExchange, int status, ContentEncoding encoding) {
+        this.httpExchange = httpExchange;
+        this.status = status;
+        this.encoding = encoding;
+        buffer = borrowBuffer();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+
+        if (stream == null && ensureCapacity(1)) {
+            buffer[count++] = (byte)b;
+        }
+        else {
+            stream.write(b);
+            streamed++;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        if (stream == null && ensureCapacity(len)) {
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+        else {
+            stream.write(b, off, len);
+            streamed += len;
+        }
+    }
+
+    /**
+     * Makes room for [len] more bytes, growing the buffer up to its limit
+     *
+     * @return true if the bytes fit, false if the response switched to chunked mode
+     */
+    private boolean ensureCapacity(int len) throws IOException {
+        int needed = count + len;
+
+        if (needed <= buffer.length) {
+            return true;
+        }
+
+        if (needed <= MAX_BUFFER_BYTES) {
+            buffer = grow(buffer, needed, MAX_BUFFER_BYTES);
+            return true;
+        }
+
+        // Too large to buffer: send what is buffered so far and stream the rest
+        encoding.setHeaders(httpExchange);
+        httpExchange.sendResponseHeaders(status, 0);
+        stream = encoding.wrap(new BufferedOutputStream(httpExchange.getResponseBody(),
+                CHUNK_BUFFER_BYTES));
+        stream.write(buffer, 0, count);
+        streamed = count;
+        chunked.increment();
+        return false;
+    }
+
+    /**
+     * Sends the buffered body, or the end of a chunked body, and closes the response body
+     */
+    private void finish() throws IOException {
+
+        if (stream != null) {
+            stream.close();
+            bytes.add(streamed);
+            return;
+        }
+
+        if (encoding != ContentEncoding.IDENTITY && count >= ContentEncoding.MIN_BYTES) {
+            sendCompressed();
+        }
+        else {
+            send(buffer, count);
+        }
+
+        bytes.add(count);
+        fixed.increment();
+    }
+
+    /**
+     * Compresses the buffered body into a second pooled buffer, then sends that
+     */
+    private void sendCompressed() throws IOException {
+        Compressed compressed = new Compressed();
+
+        try {
+            OutputStream out = encoding.wrap(compressed);
+            out.write(buffer, 0, count);
+            out.close();
+
+            encoding.setHeaders(httpExchange);
+            send(compressed.buffer, compressed.count);
+        }
+        finally {
+            compressed.release();
+        }
+    }
+
+    private void send(byte[] body, int length) throws IOException {
+        httpExchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        OutputStream out = httpExchange.getResponseBody();
+
+        if (length > 0) {
+            out.write(body, 0, length);
+        }
+
+        out.close();
+    }
+
+    /**
+     * Hands the buffer back to the pool. The writer cannot be used afterwards.
+     */
+    private void release() {
+        returnBuffer(buffer);
+        buffer = null;
+    }
+
+    private static byte[] borrowBuffer() {
+        byte[] buffer = pool.pollFirst();
+        return buffer != null ? buffer : new byte[INITIAL_BUFFER_BYTES];
+    }
+
+    private static void returnBuffer(byte[] buffer) {
+
+        // Buffers only grow past the limit while holding a compressed body, which is rare
+        if (buffer != null && buffer.length <= MAX_BUFFER_BYTES) {
+            pool.offerFirst(buffer);
+        }
+    }
+
+    private static byte[] grow(byte[] buffer, int needed, int limit) {
+        int size = buffer.length;
+
+        while (size < needed) {
+            size = (int)Math.min(limit, size * 2L);
+        }
+
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Collects a compressed body in a pooled buffer
+     */
+    private static class Compressed extends OutputStream {
+
+        byte[] buffer = borrowBuffer();
+        int count;
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte)b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+
+            if (count + len > buffer.length) {
+                buffer = grow(buffer, count + len, Integer.MAX_VALUE);
+            }
+
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        void release() {
+            returnBuffer(buffer);
+            buffer = null;
+        }
+    }
+}
@@ -1,60 +1,326 @@
 package server.handlers;
 
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.nio.file.*;
+
+import server.cache.StaticAssetCache;
+import server.cache.StaticAssetCache.Asset;
+import server.metrics.Metrics;
 
 /**
- * Serves the test website
+ * Serves the test website from a StaticAssetCache. Supports conditional GETs (ETag and
+ *  Last-Modified), single byte ranges and gzip/deflate.
  */
 public class WebHandler implements HttpHandler {
 
+    /* STATIC */
+    private static final String NOT_FOUND_PAGE = "/HTML/404.html";
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private static final LongAdder notModified = Metrics.counter("web.notModified");
+    private static final LongAdder partial = Metrics.counter("web.partial");
     private static Logger logger;
 
     static {
         logger = Logger.getLogger("famServer");
     }
 
+    /* NON-STATIC */
+    private final StaticAssetCache assets;
+
+    /**
+     * @param assets the website's files
+     */
+    public WebHandler(StaticAssetCache assets) {
+        this.assets = assets;
+    }
+
     @Override
     public void handle(HttpExchange httpExchange) throws IOException {
         logger.info("Entering WebHandler");
 
-        String filePathStr = "web" + httpExchange.getRequestURI().toString();
+        String method = httpExchange.getRequestMethod();
+        boolean head = method.equalsIgnoreCase("head");
 
-        if (filePathStr.equals("web/")) {
-            filePathStr = "web/index.html";
+        try {
+            if (!head && !method.equalsIgnoreCase("get")) {
+                httpExchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+            }
+            else {
+                Asset asset = assets.get(httpExchange.getRequestURI().getPath());
+
+                if (asset != null) {
+                    sendAsset(httpExchange, asset, head);
+                }
+                else {
+                    sendNotFound(httpExchange, head);
+                }
+            }
+        }
+        catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage(), e);
+        }
+        finally {
+            httpExchange.close();
         }
 
-        boolean success = false;
+        logger.info(("Exiting WebHandler\n"));
+    }
 
-        try {
-            Path filePath = FileSystems.getDefault().getPath(filePathStr);
-            logger.info("Full Path: " + filePath.toUri().toString());
+    private void sendAsset(HttpExchange httpExchange, Asset asset, boolean head) throws IOException {
+        Headers headers = httpExchange.getResponseHeaders();
+        headers.set("Content-Type", asset.getContentType());
+        headers.set("ETag", asset.getETag());
+        headers.set("Last-Modified", formatDate(asset.getLastModified()));
+        headers.set("Cache-Control", "public, no-cache");
+        headers.set("Accept-Ranges", "bytes");
 
-            httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
-            Files.copy(filePath, httpExchange.getResponseBody());
-            httpExchange.getResponseBody().close();
+        if (asset.isCompressible() && ContentEncoding.ENABLED) {
+            headers.set("Vary", "Accept-Encoding");
+        }
 
-            success = true;
+        if (isNotModified(httpExchange, asset)) {
+            notModified.increment();
+            httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+            return;
         }
-        catch (IOException e) {
-            logger.log(Level.SEVERE, e.getMessage(), e);
 
-            httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, 0);
-            httpExchange.getResponseBody().close();
+        long[] range = getRange(httpExchange, asset);
+
+        if (range == UNSATISFIABLE) {
+            headers.set("Content-Range", "bytes */" + asset.getSize());
+            httpExchange.sendResponseHeaders(HTTP_RANGE_NOT_SATISFIABLE, -1);
+        }
+        else if (range != null) {
+            partial.increment();
+            headers.set("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + asset.getSize());
+            sendContent(httpExchange, HttpURLConnection.HTTP_PARTIAL, asset, range[0],
+                    range[1] - range[0] + 1, head);
+        }
+        else {
+            sendEncoded(httpExchange, HttpURLConnection.HTTP_OK, asset, head);
+        }
+    }
+
+    /**
+     * Serves the site's 404 page, if it has one
+     */
+    private void sendNotFound(HttpExchange httpExchange, boolean head) throws IOException {
+        Asset page = assets.get(NOT_FOUND_PAGE);
+
+        if (page == null) {
+            httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+            return;
         }
 
-        if (!success) {
-            httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
-            httpExchange.getResponseBody().close();
+        httpExchange.getResponseHeaders().set("Content-Type", page.getContentType());
+        sendEncoded(httpExchange, HttpURLConnection.HTTP_NOT_FOUND, page, head);
+    }
+
+    /**
+     * Sends a whole file, compressed if the client accepts it: from the precompressed variant
+     *  for gzip, or compressed as it is sent for deflate
+     */
+    private void sendEncoded(HttpExchange httpExchange, int status, Asset asset, boolean head)
+            throws IOException {
+        ContentEncoding encoding = asset.isCompressible() && asset.getSize() >= ContentEncoding.MIN_BYTES ?
+                ContentEncoding.negotiate(httpExchange) : ContentEncoding.IDENTITY;
+
+        if (encoding == ContentEncoding.IDENTITY) {
+            sendContent(httpExchange, status, asset, 0, asset.getSize(), head);
+            return;
         }
 
+        encoding.setHeaders(httpExchange);
 
-        logger.info(("Exiting WebHandler\n"));
+        if (head) {
+            httpExchange.sendResponseHeaders(status, -1);
+        }
+        else if (encoding == ContentEncoding.GZIP && asset.getGzipContent() != null) {
+            byte[] gzip = asset.getGzipContent();
+            httpExchange.sendResponseHeaders(status, gzip.length);
+            httpExchange.getResponseBody().write(gzip);
+        }
+        else {
+            httpExchange.sendResponseHeaders(status, 0);
+
+            try (OutputStream body = encoding.wrap(httpExchange.getResponseBody())) {
+                copy(asset, 0, asset.getSize(), body);
+            }
+        }
+    }
+
+    /**
+     * Sends part of a file as it is, with a Content-Length
+     */
+    private void sendContent(HttpExchange httpExchange, int status, Asset asset, long start,
+                             long length, boolean head) throws IOException {
+
+        if (head) {
+            httpExchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        httpExchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+
+        if (length > 0) {
+            copy(asset, start, length, httpExchange.getResponseBody());
+        }
+    }
+
+    /**
+     * Writes part of a file from the cache, or straight from the file with transferTo() if it is
+     *  too large to cache
+     */
+    private void copy(Asset asset, long start, long length, OutputStream out) throws IOException {
+        byte[] content = asset.getContent();
+
+        if (content != null) {
+            out.write(content, (int)start, (int)length);
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(asset.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel channel = Channels.newChannel(out);
+            long position = start;
+            long end = start + length;
+
+            while (position < end) {
+                long sent = file.transferTo(position, end - position, channel);
+
+                if (sent <= 0) {
+                    throw new IOException(asset.getPath() + " changed while it was being sent");
+                }
+
+                position += sent;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the client's copy is current. If-None-Match takes precedence over
+     *  If-Modified-Since.
+     */
+    private boolean isNotModified(HttpExchange httpExchange, Asset asset) {
+        Headers request = httpExchange.getRequestHeaders();
+
+        if (request.containsKey("If-None-Match")) {
+            String clientTag = ETags.match(httpExchange, asset.getETag());
+
+            if (clientTag != null) {
+                httpExchange.getResponseHeaders().set("ETag", clientTag);
+                return true;
+            }
+
+            return false;
+        }
+
+        long since = parseDate(request.getFirst("If-Modified-Since"));
+        return since >= 0 && asset.getLastModified() / 1000 <= since / 1000;
+    }
+
+    /**
+     * Returns the byte range the client asked for, as {first, last}
+     *
+     * @return the range, null to send the whole file (no Range header, a stale If-Range, or a
+     *  range this handler does not serve, such as a multi-range), or UNSATISFIABLE
+     */
+    private long[] getRange(HttpExchange httpExchange, Asset asset) {
+        Headers request = httpExchange.getRequestHeaders();
+        String header = request.getFirst("Range");
+
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+
+        String ifRange = request.getFirst("If-Range");
+
+        if (ifRange != null && !ifRange.equals(asset.getETag()) &&
+                parseDate(ifRange) / 1000 != asset.getLastModified() / 1000) {
+            return null;
+        }
+
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        long size = asset.getSize();
+
+        try {
+            long first;
+            long last;
+
+            if (dash < 0) {
+                return null;
+            }
+            else if (dash == 0) {
+                // The last [n] bytes
+                long suffix = Long.parseLong(spec.substring(1));
+
+                if (suffix <= 0 || size == 0) {
+                    return UNSATISFIABLE;
+                }
+
+                first = Math.max(0, size - suffix);
+                last = size - 1;
+            }
+            else {
+                first = Long.parseLong(spec.substring(0, dash));
+                last = dash == spec.length() - 1 ? size - 1 :
+                        Math.min(size - 1, Long.parseLong(spec.substring(dash + 1)));
+
+                if (first >= size) {
+                    return UNSATISFIABLE;
+                }
+
+                if (last < first) {
+                    return null;
+                }
+            }
+
+            return new long[] {first, last};
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String formatDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    /**
+     * @return the date in milliseconds, or -1 if it is missing or not an HTTP date
+     */
+    private static long parseDate(String date) {
+
+        if (date == null) {
+            return -1;
+        }
+
+        try {
+            return ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        }
+        catch (DateTimeParseException e) {
+            return -1;
+        }
     }
 }
@@ -0,0 +1,105 @@
+package server.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes single properties the way Gson's reflective adapters do: null properties are
+ *  left out when writing, and numbers or booleans are accepted where a string is expected
+ */
+final class Fields {
+
+    private Fields() {}
+
+    static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(reader.nextBoolean());
+        }
+
+        return reader.nextString();
+    }
+
+    /**
+     * Reads a number, leaving a null property at zero like a primitive field
+     */
+    static double readDouble(JsonReader reader) throws IOException {
+
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+
+        return reader.nextDouble();
+    }
+
+    static int readInt(JsonReader reader) throws IOException {
+
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+
+        return reader.nextInt();
+    }
+
+    static <T> List<T> readList(JsonReader reader, TypeAdapter<T> adapter) throws IOException {
+
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        List<T> list = new ArrayList<>();
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            list.add(adapter.read(reader));
+        }
+
+        reader.endArray();
+        return list;
+    }
+
+    static void write(JsonWriter writer, String name, String value) throws IOException {
+
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+
+    static void write(JsonWriter writer, String name, double value) throws IOException {
+        writer.name(name).value(value);
+    }
+
+    static void write(JsonWriter writer, String name, int value) throws IOException {
+        writer.name(name).value(value);
+    }
+
+    static <T> void write(JsonWriter writer, String name, List<T> values, TypeAdapter<T> adapter)
+            throws IOException {
+
+        if (values == null) {
+            return;
+        }
+
+        writer.name(name).beginArray();
+
+        for (T value : values) {
+            adapter.write(writer, value);
+        }
+
+        writer.endArray();
+    }
+}
@@ -0,0 +1,96 @@
+package server.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import java.io.Reader;
+import java.io.Writer;
+
+import server.database.model.Event;
+import server.database.model.Person;
+import server.database.model.User;
+import server.services.*;
+
+/**
+ * The json codec shared by every request. Gson instances are thread safe but slow to build, and
+ *  each one has to rediscover every type's fields through reflection, so the server keeps a single
+ *  instance. The request, response and model types are read and written by hand-written streaming
+ *  adapters; any other type (ie: metrics snapshots, generator datasets) falls back to reflection.
+ */
+public class JsonCodec {
+
+    /* STATIC */
+    private static final JsonCodec instance = new JsonCodec();
+
+    /**
+     * Returns the codec shared by every request
+     *
+     * @return the shared codec
+     */
+    public static JsonCodec getInstance() {
+        return instance;
+    }
+
+    /* NON-STATIC */
+    private final Gson gson;
+
+    private JsonCodec() {
+        gson = new GsonBuilder()
+                .registerTypeAdapter(User.class, ModelAdapters.USER)
+                .registerTypeAdapter(Person.class, ModelAdapters.PERSON)
+                .registerTypeAdapter(Event.class, ModelAdapters.EVENT)
+                .registerTypeAdapter(LoginRequest.class, MessageAdapters.LOGIN_REQUEST)
+                .registerTypeAdapter(RegisterRequest.class, MessageAdapters.REGISTER_REQUEST)
+                .registerTypeAdapter(LoadRequest.class, MessageAdapters.LOAD_REQUEST)
+                .registerTypeAdapter(MessageResponse.class, MessageAdapters.MESSAGE_RESPONSE)
+                .registerTypeAdapter(LoginResponse.class, MessageAdapters.LOGIN_RESPONSE)
+                .registerTypeAdapter(PersonResponse.class, MessageAdapters.PERSON_RESPONSE)
+                .registerTypeAdapter(PeopleResponse.class, MessageAdapters.PEOPLE_RESPONSE)
+                .registerTypeAdapter(EventResponse.class, MessageAdapters.EVENT_RESPONSE)
+                .registerTypeAdapter(EventsResponse.class, MessageAdapters.EVENTS_RESPONSE)
+                .registerTypeAdapter(FillJobResponse.class, MessageAdapters.FILL_JOB_RESPONSE)
+                .create();
+    }
+
+    /**
+     * Writes an object as json
+     *
+     * @param object the object to write
+     * @param writer where the json is written (not closed)
+     */
+    public void toJson(Object object, Writer writer) {
+        gson.toJson(object, writer);
+    }
+
+    public String toJson(Object object) {
+        return gson.toJson(object);
+    }
+
+    /**
+     * Reads a json value into a new object
+     *
+     * @param reader the json to read
+     * @param type the type of object to create
+     * @return the object, or null if the json is empty or null
+     * @throws com.google.gson.JsonParseException if the json is malformed or of the wrong type
+     */
+    public <T> T fromJson(Reader reader, Class<T> type) {
+        return gson.fromJson(reader, type);
+    }
+
+    public <T> T fromJson(String json, Class<T> type) {
+        return gson.fromJson(json, type);
+    }
+
+    /**
+     * Reads the next value of a json stream that is already being read
+     *
+     * @param reader the json stream, positioned at the value
+     * @param type the type of object to create
+     * @return the object, or null if the value is null
+     * @throws com.google.gson.JsonParseException if the value is malformed or of the wrong type
+     */
+    public <T> T fromJson(JsonReader reader, Class<T> type) {
+        return gson.fromJson(reader, type);
+    }
+}
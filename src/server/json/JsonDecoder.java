@@ -1,6 +1,5 @@
 package server.json;
 
-import com.google.gson.Gson;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -26,8 +25,7 @@ public class JsonDecoder {
      */
     public Object decode(String jsonString, Object object) {
         logger.info("Decoding json string");
-        Gson gson = new Gson();
-        return gson.fromJson(jsonString, object.getClass());
+        return JsonCodec.getInstance().fromJson(jsonString, object.getClass());
     }
 
     /**
@@ -39,9 +37,8 @@ public class JsonDecoder {
      */
     public Object decodeStream(InputStream jsonStream, Object object) {
         logger.info("Decoding json stream");
-        Gson gson = new Gson();
         Reader reader = new InputStreamReader(jsonStream);
-        return gson.fromJson(reader, object.getClass());
+        return JsonCodec.getInstance().fromJson(reader, object.getClass());
     }
 
 }
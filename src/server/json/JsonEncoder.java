@@ -1,6 +1,5 @@
 package server.json;
 
-import com.google.gson.Gson;
 import java.io.*;
 import java.util.logging.*;
 
@@ -25,10 +24,9 @@ public class JsonEncoder {
     public String encode(Object object) {
         logger.info("Encoding json string");
 
-        Gson gson = new Gson();
-        String output = gson.toJson(object);
+        String output = JsonCodec.getInstance().toJson(object);
 
-        logger.info(output);
+        logger.fine("Encoded " + output.length() + " characters");
         return output;
     }
 
@@ -40,11 +38,9 @@ public class JsonEncoder {
     public void encodeToStream(Object object, OutputStream stream) {
         logger.info("Encoding json stream");
 
-        Gson gson = new Gson();
-
         try {
             Writer writer = new OutputStreamWriter(stream);
-            gson.toJson(object, writer);
+            JsonCodec.getInstance().toJson(object, writer);
             writer.close();
         } catch (IOException e) {
             logger.log(Level.SEVERE, e.getMessage(), e);
@@ -0,0 +1,106 @@
+package server.json;
+
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import server.database.model.Event;
+import server.database.model.Person;
+import server.database.model.User;
+
+/**
+ * Reads a /load request body ({"users": [...], "persons": [...], "events": [...]}) one object at a
+ *  time, handing the objects on in batches, so the whole body is never held in memory
+ */
+public class LoadReader {
+
+    private final JsonCodec codec = JsonCodec.getInstance();
+    private final int batchSize;
+
+    /**
+     * @param batchSize the number of objects handed on at a time
+     */
+    public LoadReader(int batchSize) {
+        assert batchSize > 0 : "invalid batchSize";
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reads a whole request body. Unknown properties are skipped.
+     *
+     * @param in the request body
+     * @param handler receives the batches, in the order they appear in the body
+     * @throws IOException if the body cannot be read or is not valid json
+     * @throws InterruptedException if the handler was interrupted
+     */
+    public void read(Reader in, BatchHandler handler) throws IOException, InterruptedException {
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            switch (name) {
+                case "users":
+                    readArray(reader, User.class, handler::users);
+                    break;
+                case "persons":
+                    readArray(reader, Person.class, handler::persons);
+                    break;
+                case "events":
+                    readArray(reader, Event.class, handler::events);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+    }
+
+    private <T> void readArray(JsonReader reader, Class<T> type, Batches<T> batches)
+            throws IOException, InterruptedException {
+        List<T> batch = new ArrayList<>(batchSize);
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            T item = codec.fromJson(reader, type);
+
+            if (item == null) {
+                throw new IOException("null " + type.getSimpleName() + " in load request");
+            }
+
+            batch.add(item);
+
+            if (batch.size() == batchSize) {
+                batches.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        reader.endArray();
+
+        if (!batch.isEmpty()) {
+            batches.accept(batch);
+        }
+    }
+
+    private interface Batches<T> {
+
+        void accept(List<T> batch) throws InterruptedException;
+    }
+
+    /**
+     * Receives the objects read from a load request
+     */
+    public interface BatchHandler {
+
+        void users(List<User> users) throws InterruptedException;
+
+        void persons(List<Person> persons) throws InterruptedException;
+
+        void events(List<Event> events) throws InterruptedException;
+    }
+}
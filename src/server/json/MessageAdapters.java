@@ -0,0 +1,375 @@
+package server.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.List;
+
+import server.database.model.Event;
+import server.database.model.Person;
+import server.database.model.User;
+import server.services.*;
+
+/**
+ * Streaming adapters for the service requests and responses. Properties keep the names and order
+ *  of the classes' fields, so the json matches what Gson's reflective adapters produce.
+ */
+final class MessageAdapters {
+
+    static final TypeAdapter<LoginRequest> LOGIN_REQUEST = new LoginRequestAdapter().nullSafe();
+    static final TypeAdapter<RegisterRequest> REGISTER_REQUEST = new RegisterRequestAdapter().nullSafe();
+    static final TypeAdapter<LoadRequest> LOAD_REQUEST = new LoadRequestAdapter().nullSafe();
+
+    static final TypeAdapter<MessageResponse> MESSAGE_RESPONSE = new MessageResponseAdapter().nullSafe();
+    static final TypeAdapter<LoginResponse> LOGIN_RESPONSE = new LoginResponseAdapter().nullSafe();
+    static final TypeAdapter<PersonResponse> PERSON_RESPONSE = new PersonResponseAdapter().nullSafe();
+    static final TypeAdapter<PeopleResponse> PEOPLE_RESPONSE = new PeopleResponseAdapter().nullSafe();
+    static final TypeAdapter<EventResponse> EVENT_RESPONSE = new EventResponseAdapter().nullSafe();
+    static final TypeAdapter<EventsResponse> EVENTS_RESPONSE = new EventsResponseAdapter().nullSafe();
+    static final TypeAdapter<FillJobResponse> FILL_JOB_RESPONSE = new FillJobResponseAdapter().nullSafe();
+
+    private MessageAdapters() {}
+
+    /* REQUESTS */
+
+    private static class LoginRequestAdapter extends TypeAdapter<LoginRequest> {
+
+        @Override
+        public void write(JsonWriter writer, LoginRequest request) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "userName", request.getUserName());
+            Fields.write(writer, "password", request.getPassword());
+            writer.endObject();
+        }
+
+        @Override
+        public LoginRequest read(JsonReader reader) throws IOException {
+            String userName = null, password = null;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "userName": userName = Fields.readString(reader); break;
+                    case "password": password = Fields.readString(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new LoginRequest(userName, password);
+        }
+    }
+
+    private static class RegisterRequestAdapter extends TypeAdapter<RegisterRequest> {
+
+        @Override
+        public void write(JsonWriter writer, RegisterRequest request) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "userName", request.getUserName());
+            Fields.write(writer, "password", request.getPassword());
+            Fields.write(writer, "email", request.getEmail());
+            Fields.write(writer, "firstName", request.getFirstName());
+            Fields.write(writer, "lastName", request.getLastName());
+            Fields.write(writer, "gender", request.getGender());
+            writer.endObject();
+        }
+
+        @Override
+        public RegisterRequest read(JsonReader reader) throws IOException {
+            String userName = null, password = null, email = null;
+            String firstName = null, lastName = null, gender = null;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "userName": userName = Fields.readString(reader); break;
+                    case "password": password = Fields.readString(reader); break;
+                    case "email": email = Fields.readString(reader); break;
+                    case "firstName": firstName = Fields.readString(reader); break;
+                    case "lastName": lastName = Fields.readString(reader); break;
+                    case "gender": gender = Fields.readString(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new RegisterRequest(userName, password, email, firstName, lastName, gender);
+        }
+    }
+
+    private static class LoadRequestAdapter extends TypeAdapter<LoadRequest> {
+
+        @Override
+        public void write(JsonWriter writer, LoadRequest request) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "users", request.getUsers(), ModelAdapters.USER);
+            Fields.write(writer, "persons", request.getPersons(), ModelAdapters.PERSON);
+            Fields.write(writer, "events", request.getEvents(), ModelAdapters.EVENT);
+            writer.endObject();
+        }
+
+        @Override
+        public LoadRequest read(JsonReader reader) throws IOException {
+            List<User> users = null;
+            List<Person> persons = null;
+            List<Event> events = null;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "users": users = Fields.readList(reader, ModelAdapters.USER); break;
+                    case "persons": persons = Fields.readList(reader, ModelAdapters.PERSON); break;
+                    case "events": events = Fields.readList(reader, ModelAdapters.EVENT); break;
+                    default: reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new LoadRequest(users, persons, events);
+        }
+    }
+
+    /* RESPONSES */
+
+    private static class MessageResponseAdapter extends TypeAdapter<MessageResponse> {
+
+        @Override
+        public void write(JsonWriter writer, MessageResponse response) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "message", response.getMessage());
+            writer.endObject();
+        }
+
+        @Override
+        public MessageResponse read(JsonReader reader) throws IOException {
+            String message = null;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("message")) {
+                    message = Fields.readString(reader);
+                }
+                else {
+                    reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new MessageResponse(message);
+        }
+    }
+
+    private static class LoginResponseAdapter extends TypeAdapter<LoginResponse> {
+
+        @Override
+        public void write(JsonWriter writer, LoginResponse response) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "authToken", response.getAuthToken());
+            Fields.write(writer, "userName", response.getUserName());
+            Fields.write(writer, "personID", response.getPersonID());
+            writer.endObject();
+        }
+
+        @Override
+        public LoginResponse read(JsonReader reader) throws IOException {
+            String authToken = null, userName = null, personID = null;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "authToken": authToken = Fields.readString(reader); break;
+                    case "userName": userName = Fields.readString(reader); break;
+                    case "personID": personID = Fields.readString(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new LoginResponse(authToken, userName, personID);
+        }
+    }
+
+    private static class PersonResponseAdapter extends TypeAdapter<PersonResponse> {
+
+        @Override
+        public void write(JsonWriter writer, PersonResponse response) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "descendant", response.getDescendant());
+            Fields.write(writer, "personID", response.getPersonID());
+            Fields.write(writer, "firstName", response.getFirstName());
+            Fields.write(writer, "lastName", response.getLastName());
+            Fields.write(writer, "gender", response.getGender());
+            Fields.write(writer, "father", response.getFather());
+            Fields.write(writer, "mother", response.getMother());
+            Fields.write(writer, "spouse", response.getSpouse());
+            writer.endObject();
+        }
+
+        @Override
+        public PersonResponse read(JsonReader reader) throws IOException {
+            String descendant = null, personID = null, firstName = null, lastName = null;
+            String gender = null, father = null, mother = null, spouse = null;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "descendant": descendant = Fields.readString(reader); break;
+                    case "personID": personID = Fields.readString(reader); break;
+                    case "firstName": firstName = Fields.readString(reader); break;
+                    case "lastName": lastName = Fields.readString(reader); break;
+                    case "gender": gender = Fields.readString(reader); break;
+                    case "father": father = Fields.readString(reader); break;
+                    case "mother": mother = Fields.readString(reader); break;
+                    case "spouse": spouse = Fields.readString(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new PersonResponse(descendant, personID, firstName, lastName, gender, father,
+                    mother, spouse);
+        }
+    }
+
+    private static class PeopleResponseAdapter extends TypeAdapter<PeopleResponse> {
+
+        @Override
+        public void write(JsonWriter writer, PeopleResponse response) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "data", response.getData(), PERSON_RESPONSE);
+            writer.endObject();
+        }
+
+        @Override
+        public PeopleResponse read(JsonReader reader) throws IOException {
+            List<PersonResponse> data = null;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("data")) {
+                    data = Fields.readList(reader, PERSON_RESPONSE);
+                }
+                else {
+                    reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new PeopleResponse(data);
+        }
+    }
+
+    private static class EventResponseAdapter extends TypeAdapter<EventResponse> {
+
+        @Override
+        public void write(JsonWriter writer, EventResponse response) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "descendant", response.getDescendant());
+            Fields.write(writer, "eventID", response.getEventID());
+            Fields.write(writer, "personID", response.getPersonID());
+            Fields.write(writer, "latitude", response.getLatitude());
+            Fields.write(writer, "longitude", response.getLongitude());
+            Fields.write(writer, "country", response.getCountry());
+            Fields.write(writer, "city", response.getCity());
+            Fields.write(writer, "eventType", response.getEventType());
+            Fields.write(writer, "year", response.getYear());
+            writer.endObject();
+        }
+
+        @Override
+        public EventResponse read(JsonReader reader) throws IOException {
+            String descendant = null, eventID = null, personID = null, country = null;
+            String city = null, eventType = null, year = null;
+            double latitude = 0, longitude = 0;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "descendant": descendant = Fields.readString(reader); break;
+                    case "eventID": eventID = Fields.readString(reader); break;
+                    case "personID": personID = Fields.readString(reader); break;
+                    case "latitude": latitude = Fields.readDouble(reader); break;
+                    case "longitude": longitude = Fields.readDouble(reader); break;
+                    case "country": country = Fields.readString(reader); break;
+                    case "city": city = Fields.readString(reader); break;
+                    case "eventType": eventType = Fields.readString(reader); break;
+                    case "year": year = Fields.readString(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new EventResponse(descendant, eventID, personID, latitude, longitude, country,
+                    city, eventType, year);
+        }
+    }
+
+    private static class EventsResponseAdapter extends TypeAdapter<EventsResponse> {
+
+        @Override
+        public void write(JsonWriter writer, EventsResponse response) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "data", response.getData(), EVENT_RESPONSE);
+            writer.endObject();
+        }
+
+        @Override
+        public EventsResponse read(JsonReader reader) throws IOException {
+            List<EventResponse> data = null;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("data")) {
+                    data = Fields.readList(reader, EVENT_RESPONSE);
+                }
+                else {
+                    reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new EventsResponse(data);
+        }
+    }
+
+    private static class FillJobResponseAdapter extends TypeAdapter<FillJobResponse> {
+
+        @Override
+        public void write(JsonWriter writer, FillJobResponse response) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "jobID", response.getJobID());
+            Fields.write(writer, "userName", response.getUserName());
+            Fields.write(writer, "generations", response.getGenerations());
+            Fields.write(writer, "status", response.getStatus());
+            Fields.write(writer, "personsWritten", response.getPersonsWritten());
+            Fields.write(writer, "eventsWritten", response.getEventsWritten());
+            Fields.write(writer, "message", response.getMessage());
+            writer.endObject();
+        }
+
+        @Override
+        public FillJobResponse read(JsonReader reader) throws IOException {
+            String jobID = null, userName = null, status = null, message = null;
+            int generations = 0, personsWritten = 0, eventsWritten = 0;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "jobID": jobID = Fields.readString(reader); break;
+                    case "userName": userName = Fields.readString(reader); break;
+                    case "generations": generations = Fields.readInt(reader); break;
+                    case "status": status = Fields.readString(reader); break;
+                    case "personsWritten": personsWritten = Fields.readInt(reader); break;
+                    case "eventsWritten": eventsWritten = Fields.readInt(reader); break;
+                    case "message": message = Fields.readString(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new FillJobResponse(jobID, userName, generations, status, personsWritten,
+                    eventsWritten, message);
+        }
+    }
+}
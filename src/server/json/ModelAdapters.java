@@ -0,0 +1,143 @@
+package server.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+import server.database.model.Event;
+import server.database.model.Person;
+import server.database.model.User;
+
+/**
+ * Streaming adapters for the database models. Properties keep the names and order of the models'
+ *  fields, so the json matches what Gson's reflective adapters produce.
+ */
+final class ModelAdapters {
+
+    static final TypeAdapter<User> USER = new UserAdapter().nullSafe();
+    static final TypeAdapter<Person> PERSON = new PersonAdapter().nullSafe();
+    static final TypeAdapter<Event> EVENT = new EventAdapter().nullSafe();
+
+    private ModelAdapters() {}
+
+    private static class UserAdapter extends TypeAdapter<User> {
+
+        @Override
+        public void write(JsonWriter writer, User user) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "uid", user.getUid());
+            Fields.write(writer, "personID", user.getPersonID());
+            Fields.write(writer, "userName", user.getUserName());
+            Fields.write(writer, "password", user.getPassword());
+            Fields.write(writer, "email", user.getEmail());
+            writer.endObject();
+        }
+
+        @Override
+        public User read(JsonReader reader) throws IOException {
+            String uid = null, personID = null, userName = null, password = null, email = null;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "uid": uid = Fields.readString(reader); break;
+                    case "personID": personID = Fields.readString(reader); break;
+                    case "userName": userName = Fields.readString(reader); break;
+                    case "password": password = Fields.readString(reader); break;
+                    case "email": email = Fields.readString(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new User(uid, personID, userName, password, email);
+        }
+    }
+
+    private static class PersonAdapter extends TypeAdapter<Person> {
+
+        @Override
+        public void write(JsonWriter writer, Person person) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "personID", person.getPersonID());
+            Fields.write(writer, "descendant", person.getDescendant());
+            Fields.write(writer, "firstName", person.getFirstName());
+            Fields.write(writer, "lastName", person.getLastName());
+            Fields.write(writer, "gender", person.getGender());
+            Fields.write(writer, "father", person.getFather());
+            Fields.write(writer, "mother", person.getMother());
+            Fields.write(writer, "spouse", person.getSpouse());
+            writer.endObject();
+        }
+
+        @Override
+        public Person read(JsonReader reader) throws IOException {
+            String personID = null, descendant = null, firstName = null, lastName = null;
+            String gender = null, father = null, mother = null, spouse = null;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "personID": personID = Fields.readString(reader); break;
+                    case "descendant": descendant = Fields.readString(reader); break;
+                    case "firstName": firstName = Fields.readString(reader); break;
+                    case "lastName": lastName = Fields.readString(reader); break;
+                    case "gender": gender = Fields.readString(reader); break;
+                    case "father": father = Fields.readString(reader); break;
+                    case "mother": mother = Fields.readString(reader); break;
+                    case "spouse": spouse = Fields.readString(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new Person(personID, descendant, firstName, lastName, gender, father, mother, spouse);
+        }
+    }
+
+    private static class EventAdapter extends TypeAdapter<Event> {
+
+        @Override
+        public void write(JsonWriter writer, Event event) throws IOException {
+            writer.beginObject();
+            Fields.write(writer, "descendant", event.getDescendant());
+            Fields.write(writer, "eventID", event.getEventID());
+            Fields.write(writer, "personID", event.getPersonID());
+            Fields.write(writer, "eventType", event.getEventType());
+            Fields.write(writer, "latitude", event.getLatitude());
+            Fields.write(writer, "longitude", event.getLongitude());
+            Fields.write(writer, "country", event.getCountry());
+            Fields.write(writer, "city", event.getCity());
+            Fields.write(writer, "year", event.getYear());
+            writer.endObject();
+        }
+
+        @Override
+        public Event read(JsonReader reader) throws IOException {
+            String descendant = null, eventID = null, personID = null, eventType = null;
+            String country = null, city = null, year = null;
+            double latitude = 0, longitude = 0;
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "descendant": descendant = Fields.readString(reader); break;
+                    case "eventID": eventID = Fields.readString(reader); break;
+                    case "personID": personID = Fields.readString(reader); break;
+                    case "eventType": eventType = Fields.readString(reader); break;
+                    case "latitude": latitude = Fields.readDouble(reader); break;
+                    case "longitude": longitude = Fields.readDouble(reader); break;
+                    case "country": country = Fields.readString(reader); break;
+                    case "city": city = Fields.readString(reader); break;
+                    case "year": year = Fields.readString(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            return new Event(eventID, personID, descendant, eventType, latitude, longitude, country,
+                    city, year);
+        }
+    }
+}
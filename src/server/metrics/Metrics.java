@@ -0,0 +1,79 @@
+package server.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A process-wide registry of named counters, gauges and timers, served by the "/metrics" context
+ */
+public final class Metrics {
+
+    /* STATIC */
+    private static final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    /**
+     * Returns the counter with the given name, creating it if needed
+     *
+     * @param name the counter's name (ie: "requests.rejected")
+     * @return the counter
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge previously registered under the same name
+     *
+     * @param name the gauge's name (ie: "requests.queue.depth")
+     * @param gauge supplies the gauge's current value
+     */
+    public static void gauge(String name, LongSupplier gauge) {
+        assert gauge != null : "null gauge";
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Returns the timer with the given name, creating it if needed
+     *
+     * @param name the timer's name (ie: "requests.wait")
+     * @return the timer
+     */
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * Returns the current value of every metric, sorted by name. Timers are reported as
+     *  [name].count, [name].totalMillis and [name].maxMillis
+     *
+     * @return a snapshot of every metric
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> output = new TreeMap<>();
+
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            output.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            output.put(entry.getKey(), entry.getValue().getAsLong());
+        }
+
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            Timer timer = entry.getValue();
+            output.put(entry.getKey() + ".count", timer.getCount());
+            output.put(entry.getKey() + ".totalMillis", timer.getTotalMillis());
+            output.put(entry.getKey() + ".maxMillis", timer.getMaxMillis());
+        }
+
+        return output;
+    }
+}
@@ -1,5 +1,7 @@
 package server.services;
 
+import server.cache.DataVersions;
+import server.cache.TokenCache;
 import server.database.DatabaseError;
 
 /**
@@ -20,6 +22,8 @@ public class ClearService extends Service {
             if (clearDatabase()) {
 
                 if (closeConnection(true)) {
+                    TokenCache.getInstance().invalidateAll();
+                    DataVersions.bumpAll();
                     logger.info("ClearService succeeded");
                     return new MessageResponse("ClearService succeeded");
                 }
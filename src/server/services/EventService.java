@@ -22,7 +22,7 @@ public class EventService extends Service {
     public EventResponse getEvent(String tokenValue, String eventId) {
         logger.info("Entering EventService");
 
-        if (openConnection()) {
+        if (openReadConnection()) {
             assert tokenValue != null : "null tokenValue";
             User user = getUserByTokenValue(tokenValue);
 
@@ -79,6 +79,18 @@ public class EventService extends Service {
         return null;
     }
 
+    /**
+     * Responses only change when the current user's events do
+     *
+     * @param user (required) an AuthToken value
+     * @return the user's data tag, or null if the token is invalid
+     */
+    @Override
+    public String getDataTag(String user) {
+        assert user != null : "EventService requires an AuthToken value";
+        return getUserDataTag(user);
+    }
+
     /**
      * The generic form of getEvent()
      *
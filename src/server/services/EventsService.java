@@ -7,6 +7,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 
+import server.ServerConfig;
+import server.cache.DataVersions;
+import server.cache.UserDataCache;
 import server.database.access.EventDAO;
 
 /**
@@ -14,28 +17,61 @@ import server.database.access.EventDAO;
  */
 public class EventsService extends Service {
 
+    /* STATIC */
+    private static final UserDataCache<EventsResponse> cache = new UserDataCache<>("cache.events",
+            ServerConfig.getLong(ServerConfig.DATA_CACHE_MAX_ROWS, 500000),
+            response -> response.getData().size());
+
     /**
      * Returns ALL events for ALL family members of the current user. The current
-     *  user is determined from the provided auth token.
+     *  user is determined from the provided auth token. The result is cached until the user's
+     *  data changes.
      *
      * @param tokenValue the user's AuthToken
      * @return a JSON response containing an array of event objects
      */
     public EventsResponse getEvents(String tokenValue) {
         logger.info("Entering EventService");
+        // Taken before the read transaction starts, so a fill that commits during it is noticed
+        long readStart = DataVersions.now();
+
+        assert tokenValue != null : "null tokenValue";
+        User user = getCachedUser(tokenValue);
+
+        // Answer cache hits without borrowing a connection
+        if (user != null) {
+            EventsResponse cached = cache.get(user.getUserName());
+
+            if (cached != null) {
+                logger.info("EventService completed from cache");
+                return cached;
+            }
+        }
+
+        if (openReadConnection()) {
+
+            if (user == null) {
+                user = getUserByTokenValue(tokenValue);
 
-        if (openConnection()) {
-            assert tokenValue != null : "null tokenValue";
-            User user = getUserByTokenValue(tokenValue);
+                EventsResponse cached = user != null ? cache.get(user.getUserName()) : null;
+
+                if (cached != null) {
+                    closeConnection(true);
+                    logger.info("EventService completed from cache");
+                    return cached;
+                }
+            }
 
             if (user != null) {
+
                 List<Event> events = getEvents(user);
-                List<EventResponse> responses = getResponses(user, events);
 
                 if (events != null) {
+                    EventsResponse response = new EventsResponse(getResponses(user, events));
                     closeConnection(true);
+                    cache.put(user.getUserName(), readStart, response);
                     logger.info("EventService completed successfully");
-                    return new EventsResponse(responses);
+                    return response;
                 }
             }
             closeConnection(false);
@@ -79,6 +115,18 @@ public class EventsService extends Service {
         return output;
     }
 
+    /**
+     * Responses only change when the current user's events do
+     *
+     * @param user (required) an AuthToken value
+     * @return the user's data tag, or null if the token is invalid
+     */
+    @Override
+    public String getDataTag(String user) {
+        assert user != null : "EventsService requires an AuthToken value";
+        return getUserDataTag(user);
+    }
+
     /**
      * The generic form of getEventList()
      *
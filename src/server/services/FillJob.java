@@ -0,0 +1,130 @@
+package server.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fill that runs in the background, with its progress
+ */
+public class FillJob implements InsertProgress {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    private final String jobID;
+    private final String userName;
+    private final int generations;
+    private final Long seed;
+    private final boolean extend;
+    private final AtomicInteger personsWritten = new AtomicInteger();
+    private final AtomicInteger eventsWritten = new AtomicInteger();
+    private volatile Status status = Status.QUEUED;
+    private volatile String message;
+    private volatile long finishedAt;
+
+    /**
+     * @param jobID the job's ID
+     * @param userName the user to fill
+     * @param generations the number of generations to fill
+     * @param seed the fill's seed, or null for random data
+     * @param extend true to extend the user's tree instead of replacing it
+     */
+    FillJob(String jobID, String userName, int generations, Long seed, boolean extend) {
+        this.jobID = jobID;
+        this.userName = userName;
+        this.generations = generations;
+        this.seed = seed;
+        this.extend = extend;
+    }
+
+    /**
+     * Runs the fill on the calling thread
+     */
+    void run() {
+        status = Status.RUNNING;
+        FillService service = new FillService();
+
+        try {
+            if (seed != null) {
+                service.setSeed(seed);
+            }
+
+            service.setInsertProgress(this);
+            MessageResponse response = extend ?
+                    service.extend(userName, generations) : service.fill(userName, generations);
+
+            if (response != null) {
+                finish(Status.DONE, response.getMessage());
+            }
+            else {
+                finish(Status.FAILED, service.getError().getMessage());
+            }
+        }
+        catch (RuntimeException | Error e) {
+            finish(Status.FAILED, "Internal server error");
+            throw e;
+        }
+        finally {
+            service.finish();
+        }
+    }
+
+    private void finish(Status status, String message) {
+        this.message = message;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = status;
+    }
+
+    @Override
+    public void inserted(String table, int rows) {
+
+        if ("persons".equals(table)) {
+            personsWritten.addAndGet(rows);
+        }
+        else if ("events".equals(table)) {
+            eventsWritten.addAndGet(rows);
+        }
+    }
+
+    /**
+     * Returns true if the job would fill the same data as another fill request
+     */
+    boolean sameRequest(int generations, Long seed, boolean extend) {
+        return this.generations == generations && this.extend == extend &&
+                (this.seed == null ? seed == null : this.seed.equals(seed));
+    }
+
+    boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+
+    long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getJobID() {
+        return jobID;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getPersonsWritten() {
+        return personsWritten.get();
+    }
+
+    public int getEventsWritten() {
+        return eventsWritten.get();
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,82 @@
+package server.services;
+
+/**
+ * Models a JSON response describing a background fill job
+ */
+public class FillJobResponse implements Response {
+
+    private String jobID;
+    private String userName;
+    private int generations;
+    private String status;
+    private int personsWritten;
+    private int eventsWritten;
+    private String message;
+
+    /**
+     * Takes a snapshot of a job's progress
+     *
+     * @param job the job
+     */
+    public FillJobResponse(FillJob job) {
+        // Read the status first, so a finished job's counts and message are complete
+        this.status = job.getStatus().name();
+        this.jobID = job.getJobID();
+        this.userName = job.getUserName();
+        this.generations = job.getGenerations();
+        this.personsWritten = job.getPersonsWritten();
+        this.eventsWritten = job.getEventsWritten();
+        this.message = job.getMessage();
+    }
+
+    /**
+     * Models a JSON response describing a background fill job
+     *
+     * @param jobID the job's unique ID
+     * @param userName name of the user account being filled
+     * @param generations the number of generations being generated
+     * @param status the job's status (ie: RUNNING)
+     * @param personsWritten the number of persons written so far
+     * @param eventsWritten the number of events written so far
+     * @param message the job's result or error message, if it has finished
+     */
+    public FillJobResponse(String jobID, String userName, int generations, String status,
+                           int personsWritten, int eventsWritten, String message) {
+
+        this.jobID = jobID;
+        this.userName = userName;
+        this.generations = generations;
+        this.status = status;
+        this.personsWritten = personsWritten;
+        this.eventsWritten = eventsWritten;
+        this.message = message;
+    }
+
+    public String getJobID() {
+        return jobID;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getPersonsWritten() {
+        return personsWritten;
+    }
+
+    public int getEventsWritten() {
+        return eventsWritten;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
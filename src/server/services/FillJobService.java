@@ -0,0 +1,63 @@
+package server.services;
+
+import java.util.logging.Level;
+
+/**
+ * Serves asynchronous fill requests
+ */
+public class FillJobService extends Service {
+
+    private boolean extend;
+
+    /**
+     * Makes the submitted jobs extend the user's tree instead of replacing it
+     *
+     * @param extend true to extend
+     */
+    public void setExtend(boolean extend) {
+        this.extend = extend;
+    }
+
+    /**
+     * Starts filling a user's data in the background. The user's data is replaced (or extended)
+     *  exactly as by FillService; poll FillJobStatusService with the returned job ID for progress.
+     *
+     * @param userName the username of the user to fill
+     * @param generations the number of generations to fill
+     * @return a JSON response describing the new (or already running) job
+     */
+    public FillJobResponse submit(String userName, int generations) {
+        logger.info("Entering FillJobService");
+
+        try {
+            FillJob job = FillJobs.getInstance().submit(userName, generations, getSeed(), extend);
+            return new FillJobResponse(job);
+        }
+        catch (FillJobs.FillJobException e) {
+            logger.log(Level.WARNING, "FillJobService failed: " + e.getMessage());
+            error = new MessageResponse(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The generic form of submit()
+     *
+     * @param request (not required)
+     * @param user (required) a user's username
+     * @param parameter (optional, must be an int >= 0) the number of generations
+     * @return a FillJobResponse json object
+     */
+    @Override
+    public Response getResponse(Request request, String user, String parameter) {
+        int generations = FillService.parseGenerations(parameter);
+
+        if (generations >= 0) {
+            return submit(user, generations);
+        }
+
+        logger.log(Level.WARNING, "FillJobService failed");
+        error = new MessageResponse("Invalid username or generations parameter");
+        return null;
+    }
+}
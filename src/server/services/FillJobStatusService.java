@@ -0,0 +1,41 @@
+package server.services;
+
+import java.util.logging.Level;
+
+/**
+ * Serves fill job progress requests
+ */
+public class FillJobStatusService extends Service {
+
+    /**
+     * Returns the progress of a background fill, or its result once it has finished
+     *
+     * @param jobID the job's ID
+     * @return a JSON response describing the job
+     */
+    public FillJobResponse getJob(String jobID) {
+        FillJob job = FillJobs.getInstance().get(jobID);
+
+        if (job != null) {
+            return new FillJobResponse(job);
+        }
+
+        error = new MessageResponse("Invalid jobID parameter");
+        logger.log(Level.WARNING, "FillJobStatusService failed: " + error.getMessage());
+        return null;
+    }
+
+    /**
+     * The generic form of getJob()
+     *
+     * @param request (not required)
+     * @param user (not required)
+     * @param parameter (required) the job's ID
+     * @return a FillJobResponse json object
+     */
+    @Override
+    public Response getResponse(Request request, String user, String parameter) {
+        assert parameter != null : "FillJobStatusService requires a jobID";
+        return getJob(parameter);
+    }
+}
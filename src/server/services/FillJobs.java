@@ -0,0 +1,173 @@
+package server.services;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import server.ServerConfig;
+import server.concurrent.RequestExecutors;
+import server.concurrent.RequestGate;
+import server.generator.IdStrategy;
+import server.metrics.Metrics;
+
+/**
+ * Runs fills in the background and remembers them until they have been finished for a while.
+ *  Each user has at most one unfinished job; an identical request for the same user joins it.
+ */
+public final class FillJobs {
+
+    /* STATIC */
+    private static Logger logger;
+    private static final FillJobs instance = new FillJobs();
+
+    static {
+        logger = Logger.getLogger("famServer");
+    }
+
+    public static FillJobs getInstance() {
+        return instance;
+    }
+
+    /* NON-STATIC */
+    private final int maxPending = ServerConfig.getInt(ServerConfig.FILL_JOB_QUEUE, 64);
+    private final long retentionMillis =
+            ServerConfig.getLong(ServerConfig.FILL_JOB_RETENTION_SECONDS, 600) * 1000;
+
+    private final ExecutorService executor = RequestExecutors.newPlatformThreadPool(
+            ServerConfig.getInt(ServerConfig.FILL_JOB_THREADS,
+                    Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+            "fill-job");
+
+    private final Map<String, FillJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, FillJob> activeByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder coalesced = Metrics.counter("fill.jobs.coalesced");
+    private volatile RequestGate gate;
+
+    private FillJobs() {
+        Metrics.gauge("fill.jobs.pending", pending::get);
+        Metrics.gauge("fill.jobs.retained", jobs::size);
+    }
+
+    /**
+     * Starts a background fill, or returns the user's unfinished job if it is the same fill
+     *
+     * @param userName the user to fill
+     * @param generations the number of generations to fill
+     * @param seed the fill's seed, or null for random data
+     * @param extend true to extend the user's tree instead of replacing it
+     * @return the job
+     * @throws FillJobException if a different fill is already running for the user, or too many
+     *  jobs are waiting
+     */
+    public FillJob submit(String userName, int generations, Long seed, boolean extend)
+            throws FillJobException {
+        removeExpired();
+
+        synchronized (activeByUser) {
+            FillJob active = activeByUser.get(userName);
+
+            if (active != null) {
+                if (active.sameRequest(generations, seed, extend)) {
+                    coalesced.increment();
+                    return active;
+                }
+
+                throw new FillJobException("A different fill is already running for this user (job " +
+                        active.getJobID() + ")");
+            }
+
+            if (pending.get() >= maxPending) {
+                throw new FillJobException("Too many fills are waiting, try again later");
+            }
+
+            // Anyone can poll a job by its ID, so IDs must not be guessable
+            FillJob job = new FillJob(IdStrategy.TOKENS.nextId(), userName, generations, seed,
+                    extend);
+            jobs.put(job.getJobID(), job);
+            activeByUser.put(userName, job);
+            pending.incrementAndGet();
+
+            executor.execute(() -> run(job));
+            logger.info("Queued fill job " + job.getJobID() + " for " + userName);
+            return job;
+        }
+    }
+
+    /**
+     * Makes every job take a slot from a gate while it runs, so background fills share a limit
+     *  with synchronous ones
+     *
+     * @param gate the gate (ie: the fill lane's), or null to run jobs as soon as a thread is free
+     */
+    public void setGate(RequestGate gate) {
+        this.gate = gate;
+    }
+
+    /**
+     * Returns a job that is running or finished recently
+     *
+     * @param jobID the job's ID
+     * @return the job, or null if it does not exist (or finished too long ago)
+     */
+    public FillJob get(String jobID) {
+        return jobs.get(jobID);
+    }
+
+    private void run(FillJob job) {
+        RequestGate gate = this.gate;
+
+        if (gate != null) {
+            gate.enterUninterruptibly();
+        }
+
+        try {
+            job.run();
+            logger.info("Fill job " + job.getJobID() + " " + job.getStatus());
+        }
+        catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Fill job " + job.getJobID() + " failed", e);
+        }
+        finally {
+            if (gate != null) {
+                gate.exit();
+            }
+
+            pending.decrementAndGet();
+
+            synchronized (activeByUser) {
+                activeByUser.remove(job.getUserName(), job);
+            }
+        }
+    }
+
+    private void removeExpired() {
+        long oldest = System.currentTimeMillis() - retentionMillis;
+        Iterator<FillJob> iterator = jobs.values().iterator();
+
+        while (iterator.hasNext()) {
+            FillJob job = iterator.next();
+
+            if (job.isFinished() && job.getFinishedAt() < oldest) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Thrown when a fill job cannot be started
+     */
+    public static class FillJobException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        FillJobException(String message) {
+            super(message);
+        }
+    }
+}
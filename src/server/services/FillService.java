@@ -1,18 +1,38 @@
 package server.services;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
+import server.cache.DataVersions;
 import server.database.DatabaseError;
 import server.database.access.EventDAO;
 import server.database.access.PersonDAO;
 import server.database.access.UserDAO;
+import server.database.model.Event;
+import server.database.model.Person;
 import server.database.model.User;
+import server.generator.FamilyTreeGenerator;
 
 /**
  * Serves all fill requests
  */
 public class FillService extends Service {
 
+    private boolean extend;
+
+    /**
+     * Makes getResponse() extend the user's tree instead of replacing it
+     *
+     * @param extend true to extend
+     */
+    public void setExtend(boolean extend) {
+        this.extend = extend;
+    }
+
     /**
      * Populates the database with random information for the given user, deleting all previously
      *  existing information
@@ -36,6 +56,7 @@ public class FillService extends Service {
                 if (response != null) {
 
                     if (closeConnection(true)) {
+                        DataVersions.bump(user.getUserName());
                         logger.info("FillService completed successfully");
                         return response;
                     }
@@ -48,6 +69,115 @@ public class FillService extends Service {
         return null;
     }
 
+    /**
+     * Adds generations to the user's existing tree, without rewriting it. Every ancestor with no
+     *  parents that is fewer than [generations] generations from the user gets new ancestors up
+     *  to that many generations; nothing else is changed.
+     *
+     * @param userName the username of the user to extend
+     * @param generations the number of generations the tree should have
+     * @return a JSON response detailing the success or failure
+     */
+    public MessageResponse extend(String userName, int generations) {
+        logger.info("Entering FillService (extend)");
+
+        if (openConnection()) {
+            assert userName != null : "null username";
+            User user = getUser(userName);
+
+            if (user != null) {
+                assert generations >= 0 : "invalid generations param";
+                MessageResponse response = extendData(user, generations);
+
+                if (response != null) {
+
+                    if (closeConnection(true)) {
+                        DataVersions.bump(user.getUserName());
+                        logger.info("FillService (extend) completed successfully");
+                        return response;
+                    }
+                }
+            }
+            closeConnection(false);
+        }
+
+        logger.log(Level.WARNING, "FillService (extend) failed: " + error.getMessage());
+        return null;
+    }
+
+    private MessageResponse extendData(User user, int generations) {
+        PersonDAO pDao = db.getPersonDAO();
+
+        try {
+            List<Person> existing = pDao.getPersonsByUsername(user.getUserName());
+            Map<String, Person> personsByID = new HashMap<>();
+
+            for (Person person : existing) {
+                personsByID.put(person.getPersonID(), person);
+            }
+
+            Person descendant = personsByID.get(user.getPersonID());
+
+            if (descendant == null) {
+                error = new MessageResponse("Invalid username or generations parameter");
+                return null;
+            }
+
+            // Salted with the tree's size, so a seeded extension never repeats the tree's IDs
+            FamilyTreeGenerator tree = newTreeGenerator(user, existing.size());
+            List<Person> extended = new ArrayList<>();
+            List<Person> persons = new ArrayList<>();
+            List<Event> events = new ArrayList<>();
+
+            // Breadth first from the user, through fathers and mothers
+            Map<String, Integer> depths = new HashMap<>();
+            ArrayDeque<Person> queue = new ArrayDeque<>();
+            depths.put(descendant.getPersonID(), 0);
+            queue.add(descendant);
+
+            while (!queue.isEmpty()) {
+                Person person = queue.poll();
+                int depth = depths.get(person.getPersonID());
+
+                if (person.getFather() == null && person.getMother() == null) {
+
+                    if (depth < generations) {
+                        tree.extendTree(person, generations - depth, depth);
+                        persons.addAll(tree.getPersonList());
+                        events.addAll(tree.getEventList());
+                        extended.add(person);
+                    }
+                    continue;
+                }
+
+                for (String parentID : new String[] {person.getFather(), person.getMother()}) {
+                    Person parent = parentID == null ? null : personsByID.get(parentID);
+
+                    if (parent != null && !depths.containsKey(parentID)) {
+                        depths.put(parentID, depth + 1);
+                        queue.add(parent);
+                    }
+                }
+            }
+
+            pDao.updateAllIDs(extended, BATCH_SIZE);
+
+            if (loadPersons(persons) && loadEvents(events)) {
+                String message = "Successfully added " + persons.size() + " persons and " +
+                        events.size() + " events to the database";
+
+                logger.info(message);
+                return new MessageResponse(message);
+            }
+        }
+        catch (DatabaseError e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+        }
+
+        error = new MessageResponse("Internal server error");
+        return null;
+    }
+
     /**
      * Returns a User object from a username
      *
@@ -90,7 +220,7 @@ public class FillService extends Service {
     }
 
     /**
-     * The generic form of fill()
+     * The generic form of fill() (or of extend(), after setExtend(true))
      *
      * @param request (not required)
      * @param user (required) a user's username
@@ -99,23 +229,10 @@ public class FillService extends Service {
      */
     @Override
     public Response getResponse(Request request, String user, String parameter) {
+        int generations = parseGenerations(parameter);
 
-        // Check for optional generations parameter
-        if (parameter != null) {
-            try {
-                int generations = Integer.parseInt(parameter);
-
-                if (generations >= 0) {
-                    return fill(user, generations);
-                }
-            }
-            catch (NumberFormatException e) {
-                logger.log(Level.WARNING, e.getMessage(), e);
-
-            }
-        }
-        else {
-            return fill(user, DEFAULT_GENERATIONS);
+        if (generations >= 0) {
+            return extend ? extend(user, generations) : fill(user, generations);
         }
 
         logger.log(Level.WARNING, "FillService failed");
@@ -123,4 +240,26 @@ public class FillService extends Service {
         return null;
     }
 
+    /**
+     * Reads the optional generations parameter of a fill request
+     *
+     * @param parameter the parameter, or null to use the default
+     * @return the number of generations, or -1 if the parameter is invalid
+     */
+    static int parseGenerations(String parameter) {
+
+        // Check for optional generations parameter
+        if (parameter == null) {
+            return DEFAULT_GENERATIONS;
+        }
+
+        try {
+            return Math.max(-1, Integer.parseInt(parameter));
+        }
+        catch (NumberFormatException e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+            return -1;
+        }
+    }
+
 }
@@ -0,0 +1,13 @@
+package server.services;
+
+/**
+ * Told each time a service finishes inserting a batch of rows
+ */
+public interface InsertProgress {
+
+    /**
+     * @param table the table the rows were inserted into ("persons" or "events")
+     * @param rows the number of rows inserted
+     */
+    void inserted(String table, int rows);
+}
@@ -4,17 +4,53 @@ import server.database.access.UserDAO;
 import server.database.model.Person;
 import server.database.model.Event;
 import server.database.model.User;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import server.ServerConfig;
+import server.cache.DataVersions;
+import server.cache.TokenCache;
+import server.concurrent.RequestExecutors;
 import server.database.DatabaseError;
+import server.generator.IdStrategy;
+import server.json.LoadReader;
+import server.metrics.Metrics;
 
 /**
  * Serves all Load requests
  */
 public class LoadService extends Service{
 
+    /* STATIC */
+    private static final int STREAM_QUEUE = ServerConfig.getInt(ServerConfig.LOAD_STREAM_QUEUE, 4);
+    private static final long POLL_MILLIS = 100;
+
+    // Loads with at least this many persons or events resolve descendants in parallel
+    private static final int PARALLEL_THRESHOLD = 50000;
+
+    // Parses streamed load bodies while the request thread inserts them
+    private static final ExecutorService parsers = RequestExecutors.newPlatformThreadPool(
+            ServerConfig.getInt(ServerConfig.LANE_PREFIX + "load.concurrency", 1), "load-parser");
+
+    /* NON-STATIC */
+    private int usersLoaded;
+    private int personsLoaded;
+    private int eventsLoaded;
+    private long unresolvedEvents;
+
     /**
      * Clears all data from the database (just like the /clear API), and then loads the
      *  posted user, person, and event data into the database
@@ -32,6 +68,8 @@ public class LoadService extends Service{
                 if (loadData(request)) {
 
                     if (closeConnection(true)) {
+                        TokenCache.getInstance().invalidateAll();
+                        DataVersions.bumpAll();
                         logger.info("LoadService completed successfully");
                         return sendResponse(request);
                     }
@@ -44,6 +82,128 @@ public class LoadService extends Service{
         return null;
     }
 
+    /**
+     * Clears all data from the database (just like the /clear API), and then loads users, persons
+     *  and events while they are read from the request body. Only a few batches of the body are
+     *  held in memory at once, and everything is loaded in one transaction.
+     *
+     * @param request the request, holding the body to read
+     * @return a JSON response detailing success or failure
+     */
+    public MessageResponse loadStream(LoadStreamRequest request) {
+        logger.info("Entering LoadService (streaming)");
+
+        if (openConnection()) {
+
+            if (clearDatabase()) {
+
+                if (streamData(request)) {
+
+                    if (closeConnection(true)) {
+                        TokenCache.getInstance().invalidateAll();
+                        DataVersions.bumpAll();
+                        return sendResponse(usersLoaded, personsLoaded, eventsLoaded);
+                    }
+                }
+            }
+            closeConnection(false);
+        }
+
+        logger.log(Level.WARNING, "LoadService failed: " + error.getMessage());
+        return null;
+    }
+
+    /**
+     * Parses the body on a parser thread, which queues batches for this thread to insert
+     */
+    private boolean streamData(LoadStreamRequest request) {
+        BlockingQueue<LoadBatch> queue = new ArrayBlockingQueue<>(STREAM_QUEUE);
+
+        Future<?> parser = parsers.submit(() -> {
+            Reader body = new InputStreamReader(request.getBody(), StandardCharsets.UTF_8);
+
+            new LoadReader(BATCH_SIZE).read(body, new LoadReader.BatchHandler() {
+                @Override
+                public void users(List<User> users) throws InterruptedException {
+                    queue.put(new LoadBatch(users, null, null));
+                }
+
+                @Override
+                public void persons(List<Person> persons) throws InterruptedException {
+                    queue.put(new LoadBatch(null, persons, null));
+                }
+
+                @Override
+                public void events(List<Event> events) throws InterruptedException {
+                    queue.put(new LoadBatch(null, null, events));
+                }
+            });
+            return null;
+        });
+
+        try {
+            LoadBatch batch;
+
+            while ((batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) != null ||
+                    !parser.isDone() || !queue.isEmpty()) {
+
+                if (batch != null && !loadBatch(batch)) {
+                    parser.cancel(true);
+                    return false;
+                }
+            }
+
+            parser.get();
+
+            // Events are matched to their person's descendant once every person is in
+            int assigned = db.getEventDAO().assignDescendants();
+            unresolvedEvents = db.getEventDAO().countWithoutPerson();
+            recordUnresolved();
+            logger.info("Assigned descendants to " + assigned + " events");
+            return true;
+        }
+        catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Could not read load request: " + e.getCause(), e.getCause());
+            error = new MessageResponse("Request property missing or has invalid value");
+        }
+        catch (InterruptedException e) {
+            parser.cancel(true);
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Load interrupted", e);
+            error = new MessageResponse("Internal server error");
+        }
+        catch (DatabaseError e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+            error = new MessageResponse("Internal server error");
+        }
+
+        return false;
+    }
+
+    private boolean loadBatch(LoadBatch batch) {
+
+        if (batch.users != null) {
+            cleanUsers(batch.users);
+            usersLoaded += batch.users.size();
+            return loadUsers(batch.users);
+        }
+
+        if (batch.persons != null) {
+            personsLoaded += batch.persons.size();
+            return loadPersons(batch.persons);
+        }
+
+        for (Event event : batch.events) {
+            // Set by assignDescendants() once the persons are in
+            if (event.getDescendant() == null) {
+                event.setDescendant("");
+            }
+        }
+
+        eventsLoaded += batch.events.size();
+        return loadEvents(batch.events);
+    }
+
     private boolean loadData(LoadRequest request) {
         List<Person> persons = request.getPersons();
         List<User> users = request.getUsers();
@@ -59,21 +219,51 @@ public class LoadService extends Service{
 
         for (User user : users) {
             logger.info("Cleaning User: " + user.getUserName());
-            user.setUid(UUID.randomUUID().toString());
+            user.setUid(IdStrategy.RECORDS.nextId());
         }
     }
 
+    /**
+     * Sets each event's descendant to its person's descendant, using an index of the persons
+     *  built in one pass. Events whose person is not in the load keep their own descendant and
+     *  are counted as unresolved.
+     */
     private void cleanEvents(List<Event> events, List<Person> persons) {
+        boolean parallel = persons.size() >= PARALLEL_THRESHOLD ||
+                events.size() >= PARALLEL_THRESHOLD;
+        Stream<Person> personStream = parallel ? persons.parallelStream() : persons.stream();
 
-        for (Event event : events) {
+        // The first person with an ID wins, as it did when persons were searched in order
+        Map<String, String> descendants = personStream
+                .filter(person -> person.getPersonID() != null && person.getDescendant() != null)
+                .collect(Collectors.toMap(Person::getPersonID, Person::getDescendant,
+                        (first, second) -> first));
 
-            for (Person person : persons) {
+        Stream<Event> eventStream = parallel ? events.parallelStream() : events.stream();
 
-                if (event.getPersonID().equals(person.getPersonID())) {
-                    event.setDescendant(person.getDescendant());
-                    break;
-                }
-            }
+        unresolvedEvents = eventStream
+                .filter(event -> {
+                    String descendant = event.getPersonID() == null ?
+                            null : descendants.get(event.getPersonID());
+
+                    if (descendant == null) {
+                        return true;
+                    }
+
+                    event.setDescendant(descendant);
+                    return false;
+                })
+                .count();
+
+        recordUnresolved();
+    }
+
+    private void recordUnresolved() {
+        Metrics.counter("load.events.unresolved").add(unresolvedEvents);
+
+        if (unresolvedEvents > 0) {
+            logger.log(Level.WARNING, unresolvedEvents + " loaded events do not belong to a " +
+                    "loaded person");
         }
     }
 
@@ -82,9 +272,9 @@ public class LoadService extends Service{
         UserDAO uDao = db.getUserDAO();
 
         try {
-            for (User user : users) {
-                uDao.insert(user);
-            }
+            long start = System.nanoTime();
+            uDao.insertAll(users, BATCH_SIZE);
+            recordInsert("users", users.size(), start);
 
             logger.info("Users loaded successfully");
             return true;
@@ -96,13 +286,18 @@ public class LoadService extends Service{
     }
 
     private MessageResponse sendResponse(LoadRequest request) {
-        int uSize = request.getUsers().size();
-        int pSize = request.getPersons().size();
-        int eSize = request.getEvents().size();
+        return sendResponse(request.getUsers().size(), request.getPersons().size(),
+                request.getEvents().size());
+    }
 
+    private MessageResponse sendResponse(int uSize, int pSize, int eSize) {
         String message = "Successfully added " + uSize + " users, " + pSize +
                 " persons, and " + eSize + " events to the database.";
 
+        if (unresolvedEvents > 0) {
+            message += " " + unresolvedEvents + " events did not match a loaded person.";
+        }
+
         logger.info(message);
         return new MessageResponse(message);
     }
@@ -110,7 +305,7 @@ public class LoadService extends Service{
     /**
      * The generic form of load()
      *
-     * @param request (required) a LoadRequest object
+     * @param request (required) a LoadRequest or LoadStreamRequest object
      * @param user (not required)
      * @param parameter (not required)
      * @return a MessageResponse json object
@@ -118,7 +313,28 @@ public class LoadService extends Service{
     @Override
     public Response getResponse(Request request, String user, String parameter) {
         assert request != null : "LoadService requires a LoadRequest";
+
+        if (request instanceof LoadStreamRequest) {
+            return loadStream((LoadStreamRequest)request);
+        }
+
         assert request.getClass() == LoadRequest.class : "request must be a LoadRequest";
         return load((LoadRequest)request);
     }
+
+    /**
+     * One batch read from a streamed load request (only one of the lists is set)
+     */
+    private static class LoadBatch {
+
+        final List<User> users;
+        final List<Person> persons;
+        final List<Event> events;
+
+        LoadBatch(List<User> users, List<Person> persons, List<Event> events) {
+            this.users = users;
+            this.persons = persons;
+            this.events = events;
+        }
+    }
 }
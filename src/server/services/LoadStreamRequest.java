@@ -0,0 +1,23 @@
+package server.services;
+
+import java.io.InputStream;
+
+/**
+ * A /load request whose body is read while it is being loaded, instead of being decoded into a
+ *  LoadRequest first
+ */
+public class LoadStreamRequest implements Request {
+
+    private final InputStream body;
+
+    /**
+     * @param body the request body, in the same json format as a LoadRequest
+     */
+    public LoadStreamRequest(InputStream body) {
+        this.body = body;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+}
@@ -7,6 +7,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 
+import server.ServerConfig;
+import server.cache.DataVersions;
+import server.cache.UserDataCache;
 import server.database.access.PersonDAO;
 
 /**
@@ -14,25 +17,61 @@ import server.database.access.PersonDAO;
  */
 public class PeopleService extends Service {
 
+    /* STATIC */
+    private static final UserDataCache<PeopleResponse> cache = new UserDataCache<>("cache.people",
+            ServerConfig.getLong(ServerConfig.DATA_CACHE_MAX_ROWS, 500000),
+            response -> response.getData().size());
+
     /**
      * Returns ALL family members of the current user. The current user is
-     * determined from the provided auth token.
+     * determined from the provided auth token. The result is cached until the user's data
+     * changes.
      *
      * @param tokenValue the current user's AuthToken value
      * @return a JSON object containing an array of Person objects
      */
     public PeopleResponse getPeople(String tokenValue) {
+        // Taken before the read transaction starts, so a fill that commits during it is noticed
+        long readStart = DataVersions.now();
+
+        assert tokenValue != null : "null tokenValue";
+        User user = getCachedUser(tokenValue);
+
+        // Answer cache hits without borrowing a connection
+        if (user != null) {
+            PeopleResponse cached = cache.get(user.getUserName());
+
+            if (cached != null) {
+                logger.info("PeopleService completed from cache");
+                return cached;
+            }
+        }
+
+        if (openReadConnection()) {
+
+            if (user == null) {
+                user = getUserByTokenValue(tokenValue);
 
-        if (openConnection()) {
-            assert tokenValue != null : "null tokenValue";
-            User user = getUserByTokenValue(tokenValue);
+                PeopleResponse cached = user != null ? cache.get(user.getUserName()) : null;
+
+                if (cached != null) {
+                    closeConnection(true);
+                    logger.info("PeopleService completed from cache");
+                    return cached;
+                }
+            }
 
             if (user != null) {
+
                 List<Person> people = getPeople(user);
-                List<PersonResponse> responses = getResponses(people);
-                closeConnection(true);
-                logger.info("PeopleService completed successfully");
-                return new PeopleResponse(responses);
+
+                if (people != null) {
+                    PeopleResponse response = new PeopleResponse(getResponses(people));
+                    closeConnection(true);
+                    cache.put(user.getUserName(), readStart, response);
+                    logger.info("PeopleService completed successfully");
+                    return response;
+                }
             }
             closeConnection(false);
         }
@@ -73,6 +112,18 @@ public class PeopleService extends Service {
         return responses;
     }
 
+    /**
+     * Responses only change when the current user's persons do
+     *
+     * @param user (required) an AuthToken value
+     * @return the user's data tag, or null if the token is invalid
+     */
+    @Override
+    public String getDataTag(String user) {
+        assert user != null : "PeopleService requires an AuthToken value";
+        return getUserDataTag(user);
+    }
+
     /**
      * The generic form of getPeople()
      *
@@ -20,7 +20,7 @@ public class PersonService extends Service {
     public PersonResponse getPerson(String tokenValue, String personID) {
         logger.info("Entering Person Service");
 
-        if (openConnection()) {
+        if (openReadConnection()) {
             assert tokenValue != null : "null token value";
             User user = getUserByTokenValue(tokenValue);
 
@@ -56,6 +56,18 @@ public class PersonService extends Service {
         return null;
     }
 
+    /**
+     * Responses only change when the current user's persons do
+     *
+     * @param user (required) an AuthToken value
+     * @return the user's data tag, or null if the token is invalid
+     */
+    @Override
+    public String getDataTag(String user) {
+        assert user != null : "PersonService requires an AuthToken value";
+        return getUserDataTag(user);
+    }
+
     /**
      * The generic form of getPerson()
      *
@@ -1,14 +1,15 @@
 package server.services;
 
-import java.util.UUID;
 import java.util.logging.Level;
 
+import server.cache.DataVersions;
 import server.database.DatabaseError;
 import server.database.access.PersonDAO;
 import server.database.access.UserDAO;
 import server.database.model.AuthToken;
 import server.database.model.Person;
 import server.database.model.User;
+import server.generator.IdStrategy;
 
 /**
  * Serves all registration requests
@@ -28,11 +29,11 @@ public class RegisterService extends Service {
         if (openConnection()) {
 
             if (uniqueUserName(req.getUserName())) {
-                String pid = UUID.randomUUID().toString();
+                String pid = IdStrategy.RECORDS.nextId();
                 Person person = new Person(pid, req.getUserName(), req.getFirstName(),
                                            req.getLastName(), req.getGender());
 
-                String uid = UUID.randomUUID().toString();
+                String uid = IdStrategy.RECORDS.nextId();
                 User user = new User(uid, pid, req.getUserName(), req.getPassword(), req.getEmail());
 
                 if (insertUser(user) && insertPerson(person)) {
@@ -44,6 +45,7 @@ public class RegisterService extends Service {
                         if (token != null) {
 
                             if (closeConnection(true)) {
+                                DataVersions.bump(user.getUserName());
                                 logger.info("RegisterService completed successfully");
                                 return new LoginResponse(token.getValue(), user.getUserName(), pid);
                             }
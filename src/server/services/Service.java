@@ -17,8 +17,13 @@ import java.util.logging.Logger;
 import server.database.*;
 import server.database.access.*;
 import server.database.model.*;
+import server.cache.DataVersions;
+import server.cache.TokenCache;
 import server.generator.AuthTokenGenerator;
 import server.generator.FamilyTreeGenerator;
+import server.generator.TreePool;
+import server.metrics.Metrics;
+import server.ServerConfig;
 
 /**
  * Represents a service that the server is capable of performing
@@ -28,7 +33,13 @@ public abstract class Service {
 
     /* STATIC */
     protected static Logger logger;
-    protected static final int DEFAULT_GENERATIONS = 4;
+    public static final int DEFAULT_GENERATIONS = 4;
+    protected static final int BATCH_SIZE = ServerConfig.getInt(ServerConfig.DB_BATCH_SIZE, 500);
+    private static final int STREAM_GENERATIONS =
+            ServerConfig.getInt(ServerConfig.FILL_STREAM_GENERATIONS, 10);
+    private static final int STREAM_QUEUE = ServerConfig.getInt(ServerConfig.FILL_STREAM_QUEUE, 4);
+    private static final Long DEFAULT_SEED = ServerConfig.getString(ServerConfig.FILL_SEED, null) == null ?
+            null : ServerConfig.getLong(ServerConfig.FILL_SEED, 0);
 
     static {
         logger = Logger.getLogger("famServer");
@@ -37,6 +48,8 @@ public abstract class Service {
     /* NON-STATIC */
 
     protected MessageResponse error;
+    private Long seed;
+    private InsertProgress progress;
     protected Database db;
 
     /* PUBLIC METHODS */
@@ -48,6 +61,7 @@ public abstract class Service {
     public Service(){
         db = new Database();
         error = new MessageResponse("Error was not initialized");
+        seed = DEFAULT_SEED;
     }
 
     /**
@@ -84,6 +98,65 @@ public abstract class Service {
         return error;
     }
 
+    /**
+     * Returns a tag naming the user and version of the data this service's response would be
+     *  built from, so a client whose copy is current can be answered with 304 Not Modified. Never
+     *  reads the persons or events themselves.
+     *
+     * @param user a string representing a user (username or authToken), if required
+     * @return the data tag, or null if the service's responses are not versioned
+     */
+    public String getDataTag(String user) {
+        return null;
+    }
+
+    /**
+     * Makes the data this service generates reproducible. The same seed, username and number of
+     *  generations always produce the same persons, events and IDs.
+     *
+     * @param seed the random seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the seed set with setSeed() (or famserver.fill.seed)
+     *
+     * @return the seed, or null if the service generates random data
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Reports every batch of persons and events the service inserts
+     *
+     * @param progress told after each batch is inserted
+     */
+    public void setInsertProgress(InsertProgress progress) {
+        this.progress = progress;
+    }
+
+
+    /**
+     * Rolls back and releases the database connection if the service returned without closing
+     *  it (ie: after an unexpected exception). Called by the handlers once a request is done.
+     */
+    public void finish() {
+
+        if (db.connectionOpen()) {
+            logger.log(Level.WARNING, getClass().getSimpleName() + " left its connection open");
+
+            try {
+                db.closeConnection(false);
+            }
+            catch (DatabaseError e) {
+                logger.log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+    }
+
 
     /* PROTECTED METHODS */
 
@@ -93,6 +166,20 @@ public abstract class Service {
      * @return true if the connection is opened successfully
      */
     protected boolean openConnection() {
+        return openConnection(false);
+    }
+
+    /**
+     * Attempts to open a read-only database connection and starts a new transaction. Used by
+     *  services that never write, so they do not wait behind the writer.
+     *
+     * @return true if the connection is opened successfully
+     */
+    protected boolean openReadConnection() {
+        return openConnection(true);
+    }
+
+    private boolean openConnection(boolean readOnly) {
 
         if (db.connectionOpen()) {
             // Connection already open, just return true
@@ -100,7 +187,12 @@ public abstract class Service {
         }
 
         try {
-            db.openConnection();
+            if (readOnly) {
+                db.openReadConnection();
+            }
+            else {
+                db.openConnection();
+            }
         }
         catch (DatabaseError e) {
             e.printStackTrace();
@@ -139,7 +231,8 @@ public abstract class Service {
     }
 
     /**
-     * Drops and then recreates all database tables, used by LoadService and ClearService
+     * Deletes every row from all database tables (keeping the schema and its indexes), used by
+     *  LoadService and ClearService
      *
      * @return true if the operation was successful
      */
@@ -147,10 +240,10 @@ public abstract class Service {
         logger.info("Clearing Database");
 
         try {
-            db.getAuthTokenDAO().createTable();
-            db.getEventDAO().createTable();
-            db.getPersonDAO().createTable();
-            db.getUserDAO().createTable();
+            db.getAuthTokenDAO().clearTable();
+            db.getEventDAO().clearTable();
+            db.getPersonDAO().clearTable();
+            db.getUserDAO().clearTable();
 
             logger.info("Clear Succeeded");
             return true;
@@ -183,23 +276,33 @@ public abstract class Service {
     }
 
     /**
-     * Returns the user associated with an AuthToken (used by many)
+     * Returns the user associated with an AuthToken (used by many), from the token cache when
+     *  possible
      *
      * @param tokenValue the token's unique value
      * @return the User associated with the token, if it exists
      */
     protected User getUserByTokenValue(String tokenValue) {
         assert db.connectionOpen() : "no database connection";
+        assert tokenValue != null : "null token value";
+
+        TokenCache tokenCache = TokenCache.getInstance();
+        User cached = tokenCache.get(tokenValue);
+
+        if (cached != null) {
+            return cached;
+        }
 
+        long generation = tokenCache.getGeneration();
         AuthTokenDAO atDao = db.getAuthTokenDAO();
         UserDAO uDao = db.getUserDAO();
 
         try {
-            assert tokenValue != null : "null token value";
             AuthToken token = atDao.getToken(tokenValue);
             User user = uDao.getUserById(token.getUid());
 
             if (user != null) {
+                tokenCache.put(tokenValue, user, generation);
                 return user;
             }
         }
@@ -213,6 +316,42 @@ public abstract class Service {
         return null;
     }
 
+    /**
+     * Returns the user associated with an AuthToken if the token cache holds it, without touching
+     *  the database
+     *
+     * @param tokenValue the token's unique value
+     * @return the User, or null if the token is not cached
+     */
+    protected User getCachedUser(String tokenValue) {
+        return TokenCache.getInstance().get(tokenValue);
+    }
+
+    /**
+     * Returns the data tag of the user an AuthToken belongs to. Only reads the token cache, or the
+     *  AuthTokens and Users tables on a cache miss.
+     *
+     * @param tokenValue the token's unique value
+     * @return the user's data tag, or null if the token is invalid
+     */
+    protected String getUserDataTag(String tokenValue) {
+        assert tokenValue != null : "null token value";
+
+        User user = getCachedUser(tokenValue);
+
+        if (user == null) {
+
+            if (!openReadConnection()) {
+                return null;
+            }
+
+            user = getUserByTokenValue(tokenValue);
+            closeConnection(true);
+        }
+
+        return user == null ? null : DataVersions.tag(user.getUserName());
+    }
+
     /**
      * Returns a person from the database by personID
      *
@@ -264,7 +403,8 @@ public abstract class Service {
     }
 
     /**
-     * Inserts fake data into the database for the specified user
+     * Inserts fake data into the database for the specified user. Unseeded trees are taken from
+     *  the TreePool when one of the right size is ready.
      *
      * @param user the user to generated data for
      * @param generations the number of generations of data to insert
@@ -277,11 +417,28 @@ public abstract class Service {
         assert user != null : "null user";
         Person descendant = getPerson(user.getPersonID());
 
+        if (descendant != null && generations >= STREAM_GENERATIONS) {
+            return streamData(user, descendant, generations);
+        }
+
         if (descendant != null) {
-            FamilyTreeGenerator tree = new FamilyTreeGenerator();
-            descendant = tree.generateTree(descendant, generations);
-            List<Person> persons = tree.getPersonList();
-            List<Event> events = tree.getEventList();
+            List<Person> persons;
+            List<Event> events;
+
+            // Seeded data must come from the seed, so never use a pooled tree for it
+            TreePool.Tree pooled = seed == null ?
+                    TreePool.getInstance().take(descendant, generations) : null;
+
+            if (pooled != null) {
+                persons = pooled.getPersons();
+                events = pooled.getEvents();
+            }
+            else {
+                FamilyTreeGenerator tree = newTreeGenerator(user, 0);
+                descendant = tree.generateTree(descendant, generations);
+                persons = tree.getPersonList();
+                events = tree.getEventList();
+            }
 
             if (update(descendant) && loadPersons(persons) && loadEvents(events)) {
                 String message = "Successfully added " + persons.size() + " persons and " +
@@ -296,6 +453,51 @@ public abstract class Service {
         return null;
     }
 
+    /**
+     * Inserts a deep family tree batch by batch while it is being generated, so only a few
+     *  batches are ever held in memory
+     *
+     * @param user the user whose tree is generated
+     * @param descendant the user's person
+     * @param generations the number of generations to generate
+     * @return a message with the number of persons and events added, or null if there was an error
+     */
+    private MessageResponse streamData(User user, Person descendant, int generations) {
+        FamilyTreeGenerator tree = newTreeGenerator(user, 0);
+
+        boolean generated = tree.streamTree(descendant, generations, BATCH_SIZE, STREAM_QUEUE,
+                (persons, events) -> loadPersons(persons) && loadEvents(events));
+
+        if (generated && update(descendant)) {
+            String message = "Successfully added " + tree.getPersonCount() + " persons and " +
+                    tree.getEventCount() + " events to the database";
+
+            logger.info(message);
+            return new MessageResponse(message);
+        }
+
+        logger.log(Level.WARNING, "Streaming generated data failed");
+        return null;
+    }
+
+    /**
+     * Returns a tree generator, seeded from the service's seed and the username if a seed was set
+     *  (so users filled with the same seed still get distinct IDs)
+     *
+     * @param user the user the tree is for
+     * @param salt mixed into the seed, so data added to an existing tree does not repeat its IDs
+     */
+    protected FamilyTreeGenerator newTreeGenerator(User user, long salt) {
+
+        if (seed == null) {
+            return new FamilyTreeGenerator();
+        }
+
+        logger.info("Generating seeded data (seed " + seed + ")");
+        return new FamilyTreeGenerator(
+                (seed ^ user.getUserName().hashCode() * 0x9E3779B97F4A7C15L) + salt * 0xBF58476D1CE4E5B9L);
+    }
+
     /**
      * Updates a person's IDs
      */
@@ -325,9 +527,12 @@ public abstract class Service {
         PersonDAO pDao = db.getPersonDAO();
 
         try {
+            long start = System.nanoTime();
+            pDao.insertAll(persons, BATCH_SIZE);
+            recordInsert("persons", persons.size(), start);
 
-            for (Person person : persons) {
-                pDao.insert(person);
+            if (progress != null) {
+                progress.inserted("persons", persons.size());
             }
 
             logger.info("Persons loaded successfully");
@@ -350,8 +555,12 @@ public abstract class Service {
         EventDAO eDao = db.getEventDAO();
 
         try {
-            for (Event event : events) {
-                eDao.insert(event);
+            long start = System.nanoTime();
+            eDao.insertAll(events, BATCH_SIZE);
+            recordInsert("events", events.size(), start);
+
+            if (progress != null) {
+                progress.inserted("events", events.size());
             }
 
             logger.info("Events loaded successfully");
@@ -363,4 +572,22 @@ public abstract class Service {
         }
     }
 
+    /**
+     * Records the size and duration of a bulk insert as db.insert.[table] metrics, and logs its
+     *  throughput in rows per second
+     *
+     * @param table the table the rows were inserted into (ie: "persons")
+     * @param rows the number of rows inserted
+     * @param startNanos the System.nanoTime() value when the insert started
+     */
+    protected void recordInsert(String table, int rows, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        Metrics.counter("db.insert." + table + ".rows").add(rows);
+        Metrics.timer("db.insert." + table).record(nanos);
+
+        if (rows > 0 && nanos > 0) {
+            logger.info("Inserted " + rows + " " + table + " at " + (rows * 1000000000L / nanos) +
+                    " rows/sec");
+        }
+    }
 }